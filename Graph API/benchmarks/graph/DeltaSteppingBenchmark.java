@@ -0,0 +1,106 @@
+package graph;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.util.HashMap;
+import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+
+/** Compares the running times of sequential Dijkstra and parallel
+ *  delta-stepping single-source searches on a scaled-up trip map.
+ *  It is kept apart from the library's sources, and is built and run
+ *  from the graph directory by "make benchmark", or with
+ *      java -cp ../benchmarks:.. graph.DeltaSteppingBenchmark [ MAP [ SCALE ] ]
+ *  where MAP (default ../trip-tests/map01) is a map in the format read by
+ *  trip.Main, and the graph searched consists of SCALE (default 100)
+ *  copies of it, each location joined to its counterpart in the next
+ *  copy by a road of the mean length.
+ *  @author Julian Wong
+ */
+public class DeltaSteppingBenchmark {
+
+    /** Run the benchmark described by ARGS. */
+    public static void main(String... args) throws FileNotFoundException {
+        String mapFileName = args.length > 0 ? args[0]
+            : "../trip-tests/map01";
+        int scale = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+        GraphBuilder<String, Double> builder =
+            new GraphBuilder<String, Double>();
+        HashMap<String, Integer> ids = new HashMap<String, Integer>();
+        int locations = 0;
+        double total = 0.0;
+        int roads = 0;
+        for (int copy = 0; copy < scale; copy += 1) {
+            Scanner in = new Scanner(new FileInputStream(mapFileName));
+            while (in.hasNext()) {
+                String kind = in.next();
+                if (kind.equals("L")) {
+                    String name = in.next();
+                    in.next();
+                    in.next();
+                    ids.put(copy + ":" + name, builder.addVertex(name));
+                } else if (kind.equals("R")) {
+                    String from = in.next();
+                    in.next();
+                    double length = Double.parseDouble(in.next());
+                    in.next();
+                    String to = in.next();
+                    builder.addEdge(ids.get(copy + ":" + from),
+                                    ids.get(copy + ":" + to), length);
+                    total += length;
+                    roads += 1;
+                }
+            }
+            in.close();
+            if (copy == 0) {
+                locations = builder.vertexSize();
+            }
+        }
+        double mean = roads == 0 ? 1.0 : total / roads;
+        for (int copy = 0; copy + 1 < scale; copy += 1) {
+            for (int i = 0; i < locations; i += 1) {
+                builder.addEdge(copy * locations + i,
+                                (copy + 1) * locations + i, mean);
+            }
+        }
+        UndirectedGraph<String, Double> G = builder.buildUndirected();
+        Graph<String, Double>.Vertex source = builder.vertex(0);
+        Weighting<Double> length = new Weighting<Double>() {
+            @Override
+            public double weight(Double x) {
+                return x;
+            }
+        };
+
+        System.out.printf("%d vertices, %d edges, %d threads%n",
+                          G.vertexSize(), G.edgeSize(),
+                          ForkJoinPool.commonPool().getParallelism());
+        double[] expected = null;
+        long best = Long.MAX_VALUE;
+        for (int trial = 0; trial < TRIALS; trial += 1) {
+            long start = System.nanoTime();
+            expected = Graphs.distances(G, source, length, false);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("sequential Dijkstra: %.1f ms%n", best / 1e6);
+        double[] actual = null;
+        best = Long.MAX_VALUE;
+        for (int trial = 0; trial < TRIALS; trial += 1) {
+            long start = System.nanoTime();
+            actual = Graphs.deltaStepping(ForkJoinPool.commonPool(), G,
+                                          source, length, mean);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("delta-stepping:      %.1f ms%n", best / 1e6);
+        for (int i = 0; i < expected.length; i += 1) {
+            if (Math.abs(expected[i] - actual[i]) > 1e-6 * expected[i]) {
+                System.out.printf("Error: distances differ at %d%n", i);
+                System.exit(1);
+            }
+        }
+    }
+
+    /** Number of times each search is timed; the best time is reported. */
+    private static final int TRIALS = 5;
+}
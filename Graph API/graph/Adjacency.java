@@ -0,0 +1,131 @@
+package graph;
+
+import java.util.Arrays;
+
+/** The adjacency lists of a graph: for each vertex number, a growable
+ *  array of slots holding items of type ITEM (typically edges).  Lists
+ *  are indexed directly by Vertex.index(), so that no hashing or boxing
+ *  is involved in finding the edges of a vertex, and the array for a
+ *  vertex is allocated only when the first item is added to it.
+ *  Outside the graph package the lists are read-only: subclasses of
+ *  Graph may inspect its adjacency lists, but only Graph changes them.
+ *  @author Julian Wong
+ */
+public class Adjacency<Item> {
+
+    /** Empty adjacency lists for vertex numbers 0 .. VERTICES-1. */
+    Adjacency(int vertices) {
+        _slots = new Object[Math.max(vertices, INITIAL_VERTICES)][];
+        _sizes = new int[_slots.length];
+    }
+
+    /** Empty adjacency lists. */
+    Adjacency() {
+        this(INITIAL_VERTICES);
+    }
+
+    /** Empty adjacency lists for vertex numbers 0 .. CAPACITIES.length-1,
+     *  where the list for vertex number v has room for exactly
+     *  CAPACITIES[v] items before it must grow. */
+    Adjacency(int[] capacities) {
+        this(capacities.length);
+        for (int v = 0; v < capacities.length; v += 1) {
+            if (capacities[v] > 0) {
+                _slots[v] = new Object[capacities[v]];
+            }
+        }
+    }
+
+    /** Returns the number of items in the list for vertex V. */
+    public int size(int v) {
+        return v < _sizes.length ? _sizes[v] : 0;
+    }
+
+    /** Returns item #K in the list for vertex V, where 0 <= K < size(V). */
+    @SuppressWarnings("unchecked")
+    public Item get(int v, int k) {
+        return (Item) _slots[v][k];
+    }
+
+    /** Append ITEM to the list for vertex V, returning its position. */
+    int add(int v, Item item) {
+        ensureVertices(v + 1);
+        Object[] slots = _slots[v];
+        int n = _sizes[v];
+        if (slots == null) {
+            slots = _slots[v] = new Object[INITIAL_SLOTS];
+        } else if (n == slots.length) {
+            slots = _slots[v] = Arrays.copyOf(slots, 2 * n);
+        }
+        slots[n] = item;
+        _sizes[v] = n + 1;
+        return n;
+    }
+
+    /** Remove item #K from the list for vertex V, where 0 <= K < size(V),
+     *  by moving the last item in that list into position K.  Returns
+     *  the item so moved, or null if item #K was the last. */
+    Item removeAt(int v, int k) {
+        Object[] slots = _slots[v];
+        int last = _sizes[v] - 1;
+        Object moved = slots[last];
+        slots[last] = null;
+        _sizes[v] = last;
+        if (k == last) {
+            return null;
+        }
+        slots[k] = moved;
+        @SuppressWarnings("unchecked")
+        Item result = (Item) moved;
+        return result;
+    }
+
+    /** Replace item #K in the list for vertex V, where 0 <= K < size(V),
+     *  with ITEM. */
+    void set(int v, int k, Item item) {
+        _slots[v][k] = item;
+    }
+
+    /** Shorten the list for vertex V to its first N items, where
+     *  0 <= N <= size(V). */
+    void truncate(int v, int n) {
+        if (n < size(v)) {
+            Arrays.fill(_slots[v], n, _sizes[v], null);
+            _sizes[v] = n;
+        }
+    }
+
+    /** Remove the entire list for vertex V. */
+    void clear(int v) {
+        if (v < _slots.length) {
+            _slots[v] = null;
+            _sizes[v] = 0;
+        }
+    }
+
+    /** Returns one more than the largest vertex number for which I may
+     *  have a non-empty list. */
+    public int bound() {
+        return _slots.length;
+    }
+
+    /** Make room for lists for vertex numbers 0 .. N-1. */
+    void ensureVertices(int n) {
+        if (n > _slots.length) {
+            int len = Math.max(n, 2 * _slots.length);
+            _slots = Arrays.copyOf(_slots, len);
+            _sizes = Arrays.copyOf(_sizes, len);
+        }
+    }
+
+    /** Initial number of vertex numbers provided for. */
+    private static final int INITIAL_VERTICES = 16;
+    /** Initial number of slots in a vertex's list. */
+    private static final int INITIAL_SLOTS = 4;
+
+    /** _slots[v] holds the list for vertex number v in its first
+     *  _sizes[v] elements, or is null if that list was never added to. */
+    private Object[][] _slots;
+    /** _sizes[v] is the length of the list for vertex number v. */
+    private int[] _sizes;
+}
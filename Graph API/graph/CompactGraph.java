@@ -0,0 +1,289 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/** An immutable snapshot of a graph, stored in compressed sparse row
+ *  form.  The edges leaving the vertex with index i occupy positions
+ *  _outStart[i] .. _outStart[i+1]-1 of the parallel arrays _outTarget
+ *  (the index of the vertex at the other end), _outLabel (the edge's
+ *  label), and _outEdge (the edge itself); incoming edges of a directed
+ *  graph are kept the same way, except that their labels, which no
+ *  query needs, are not copied.  A snapshot shares its vertices and
+ *  edges with the graph it was made from, and lists the edges of each
+ *  vertex in the same order as that graph did at the time, so that
+ *  searches and traversals give the same results on both.  Any attempt
+ *  to modify a snapshot throws UnsupportedOperationException.
+ *  @author Julian Wong
+ */
+public class CompactGraph<VLabel, ELabel> extends Graph<VLabel, ELabel> {
+
+    /** A snapshot of the current contents of G. */
+    CompactGraph(Graph<VLabel, ELabel> G) {
+        _directed = G.isDirected();
+        _bound = G.indexBound();
+        _vertices = new ArrayList<Vertex>(G.vertexSize());
+        _edges = new ArrayList<Edge>(G.edgeSize());
+        for (Vertex v : G.vertices()) {
+            _vertices.add(v);
+        }
+        for (Edge e : G.edges()) {
+            _edges.add(e);
+        }
+        _byIndex = new Object[_bound];
+        for (Vertex v : _vertices) {
+            _byIndex[v.index()] = v;
+        }
+
+        _outStart = new int[_bound + 1];
+        int size = 0;
+        for (Vertex v : _vertices) {
+            size += G.outDegree(v);
+        }
+        _outTarget = new int[size];
+        _outLabel = new Object[size];
+        _outEdge = new Object[size];
+        fill(G, true, _outStart, _outTarget, _outLabel, _outEdge);
+
+        if (_directed) {
+            _inStart = new int[_bound + 1];
+            _inTarget = new int[_edges.size()];
+            _inEdge = new Object[_edges.size()];
+            fill(G, false, _inStart, _inTarget, null, _inEdge);
+        } else {
+            _inStart = _outStart;
+            _inTarget = _outTarget;
+            _inEdge = _outEdge;
+        }
+    }
+
+    /** Fill in START, TARGET, LABEL (unless it is null), and EDGE from
+     *  the outgoing edges (if OUT) or incoming edges (otherwise) of each
+     *  vertex in G. */
+    private void fill(Graph<VLabel, ELabel> G, boolean out,
+                      int[] start, int[] target, Object[] label,
+                      Object[] edge) {
+        int k = 0;
+        for (int i = 0; i < _bound; i += 1) {
+            start[i] = k;
+            @SuppressWarnings("unchecked")
+            Vertex v = (Vertex) _byIndex[i];
+            if (v == null) {
+                continue;
+            }
+            for (Edge e : out ? G.outEdges(v) : G.inEdges(v)) {
+                target[k] = e.getV(v).index();
+                if (label != null) {
+                    label[k] = e.getLabel();
+                }
+                edge[k] = e;
+                k += 1;
+            }
+        }
+        start[_bound] = k;
+    }
+
+    @Override
+    public boolean isDirected() {
+        return _directed;
+    }
+
+    @Override
+    int indexBound() {
+        return _bound;
+    }
+
+    /** Returns myself, since I am already frozen. */
+    @Override
+    public CompactGraph<VLabel, ELabel> freeze() {
+        return this;
+    }
+
+    @Override
+    public int outDegree(Vertex v) {
+        int i = v.index();
+        return _outStart[i + 1] - _outStart[i];
+    }
+
+    @Override
+    public int inDegree(Vertex v) {
+        int i = v.index();
+        return _inStart[i + 1] - _inStart[i];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Edge outEdge(Vertex v, int k) {
+        return (Edge) _outEdge[_outStart[v.index()] + k];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Edge inEdge(Vertex v, int k) {
+        return (Edge) _inEdge[_inStart[v.index()] + k];
+    }
+
+    @Override
+    public boolean contains(Vertex u, Vertex v) {
+        int i = u.index(), j = v.index();
+        for (int k = _outStart[i]; k < _outStart[i + 1]; k += 1) {
+            if (_outTarget[k] == j) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean contains(Vertex u, Vertex v, ELabel label) {
+        int i = u.index(), j = v.index();
+        for (int k = _outStart[i]; k < _outStart[i + 1]; k += 1) {
+            if (_outTarget[k] == j && Objects.equals(_outLabel[k], label)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Iteration<Vertex> successors(Vertex v) {
+        int i = v.index();
+        return new Row<Vertex>(_outTarget, _byIndex,
+                               _outStart[i], _outStart[i + 1]);
+    }
+
+    @Override
+    public Iteration<Vertex> predecessors(Vertex v) {
+        int i = v.index();
+        return new Row<Vertex>(_inTarget, _byIndex,
+                               _inStart[i], _inStart[i + 1]);
+    }
+
+    @Override
+    public Iteration<Edge> outEdges(Vertex v) {
+        int i = v.index();
+        return new Row<Edge>(null, _outEdge, _outStart[i], _outStart[i + 1]);
+    }
+
+    @Override
+    public Iteration<Edge> inEdges(Vertex v) {
+        int i = v.index();
+        return new Row<Edge>(null, _inEdge, _inStart[i], _inStart[i + 1]);
+    }
+
+    @Override
+    public Iteration<Vertex> vertices() {
+        return Iteration.iteration(
+            Collections.unmodifiableList(_vertices).iterator());
+    }
+
+    @Override
+    public Iteration<Edge> edges() {
+        return Iteration.iteration(
+            Collections.unmodifiableList(_edges).iterator());
+    }
+
+    @Override
+    public Vertex add(VLabel label) {
+        throw frozen();
+    }
+
+    @Override
+    public Edge add(Vertex from, Vertex to, ELabel label) {
+        throw frozen();
+    }
+
+    @Override
+    public void remove(Vertex v) {
+        throw frozen();
+    }
+
+    @Override
+    public void remove(Edge e) {
+        throw frozen();
+    }
+
+    @Override
+    public void remove(Vertex v1, Vertex v2) {
+        throw frozen();
+    }
+
+    /** Does nothing: my contains methods search my compact rows, and
+     *  keeping an index of edges would gain little, since I never
+     *  change. */
+    @Override
+    void setEdgeIndexing(boolean on) {
+    }
+
+    @Override
+    public void removeAll(Collection<Vertex> vs) {
+        throw frozen();
+    }
+
+    @Override
+    public void orderEdges(Comparator<ELabel> comparator) {
+        throw frozen();
+    }
+
+    /** Returns the exception thrown by attempts to modify me. */
+    private static UnsupportedOperationException frozen() {
+        return new UnsupportedOperationException("graph is frozen");
+    }
+
+    /** An Iteration over one row of my arrays. */
+    private static class Row<Type> extends Iteration<Type> {
+        /** An Iteration over ITEMS[INDICES[k]] (or ITEMS[k] if INDICES is
+         *  null), for START <= k < END. */
+        Row(int[] indices, Object[] items, int start, int end) {
+            _indices = indices;
+            _items = items;
+            _k = start;
+            _end = end;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return _k < _end;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Type next() {
+            if (_k >= _end) {
+                throw new NoSuchElementException();
+            }
+            int k = _k;
+            _k += 1;
+            return (Type) _items[_indices == null ? k : _indices[k]];
+        }
+
+        /** Indices into _ITEMS, or null. */
+        private final int[] _indices;
+        /** The items delivered. */
+        private final Object[] _items;
+        /** Position of the next item. */
+        private int _k;
+        /** End of my row. */
+        private final int _end;
+    }
+
+    /** True iff I am directed. */
+    private final boolean _directed;
+    /** The indexBound() of the graph I was made from. */
+    private final int _bound;
+    /** My vertices, indexed by Vertex.index(). */
+    private final Object[] _byIndex;
+    /** Row offsets, targets, labels, and edges of outgoing edges. */
+    private final int[] _outStart, _outTarget;
+    /** Labels and edges of outgoing edges. */
+    private final Object[] _outLabel, _outEdge;
+    /** Row offsets and sources of incoming edges (the same as the
+     *  outgoing arrays if I am undirected). */
+    private final int[] _inStart, _inTarget;
+    /** Edges of incoming edges. */
+    private final Object[] _inEdge;
+}
@@ -0,0 +1,566 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/** A contraction hierarchy over a snapshot of a graph: a preprocessed
+ *  form of it that answers shortest-path queries far faster than A*
+ *  search, at the cost of a preprocessing pass over the whole graph.
+ *
+ *  Preprocessing removes ("contracts") the vertices one at a time, least
+ *  important first, giving each a rank in that order.  Whenever removing
+ *  a vertex v would lengthen the minimal path u -> v -> w between two of
+ *  its remaining neighbors, it adds a shortcut u -> w of the same weight.
+ *  Afterwards, some minimal path between any two vertices climbs to
+ *  higher and higher ranks and then descends, so a query need only
+ *  search upward from both ends.  Shortcuts remember the two arcs they
+ *  replace, so that paths are reported as lists of the graph's own edges.
+ *
+ *  The hierarchy reflects the graph and edge weights at the time it was
+ *  built; it does not see later changes.  Queries may run concurrently
+ *  from several threads.
+ *  @author Julian Wong
+ */
+public class ContractionHierarchy<VLabel, ELabel> {
+
+    /** A contraction hierarchy for G, whose edges are weighted by
+     *  EWEIGHTER.  Weights must be non-negative. */
+    public ContractionHierarchy(Graph<VLabel, ELabel> G,
+                                Weighting<? super ELabel> eweighter) {
+        _directed = G.isDirected();
+        _bound = G.indexBound();
+        _arcTo = new int[Math.max(2 * G.edgeSize(), 1)];
+        _arcFrom = new int[_arcTo.length];
+        _arcWeight = new double[_arcTo.length];
+        _arcFirst = new int[_arcTo.length];
+        _arcSecond = new int[_arcTo.length];
+        _arcEdge = new Object[_arcTo.length];
+        _out = new ArcLists(_bound);
+        _in = new ArcLists(_bound);
+        for (Graph<VLabel, ELabel>.Edge e : G.edges()) {
+            int u = e.getV0().index(), w = e.getV1().index();
+            double weight = eweighter.weight(e.getLabel());
+            if (weight < 0) {
+                throw new IllegalArgumentException("negative edge weight");
+            }
+            addArc(u, w, weight, e, -1, -1);
+            if (!_directed) {
+                addArc(w, u, weight, e, -1, -1);
+            }
+        }
+        contract(G);
+        buildSearchGraphs();
+        _out = _in = null;
+    }
+
+    /** Returns a path from V0 to V1 of minimum weight, as a list of the
+     *  edges of the graph I was built from, or null if V1 is unreachable
+     *  from V0. */
+    public List<Graph<VLabel, ELabel>.Edge>
+    shortestPath(Graph<VLabel, ELabel>.Vertex V0,
+                 Graph<VLabel, ELabel>.Vertex V1) {
+        Query q = _queries.get();
+        int meet = q.run(V0.index(), V1.index());
+        if (meet < 0) {
+            return null;
+        }
+        ArrayList<Integer> arcs = new ArrayList<Integer>();
+        for (int v = meet; q._parentF[v] >= 0; v = _arcFrom[q._parentF[v]]) {
+            arcs.add(q._parentF[v]);
+        }
+        Collections.reverse(arcs);
+        for (int v = meet; q._parentB[v] >= 0; v = _arcTo[q._parentB[v]]) {
+            arcs.add(q._parentB[v]);
+        }
+        return unpack(arcs);
+    }
+
+    /** Returns the weight of a minimal path from V0 to V1, or
+     *  Double.POSITIVE_INFINITY if V1 is unreachable from V0. */
+    public double distance(Graph<VLabel, ELabel>.Vertex V0,
+                           Graph<VLabel, ELabel>.Vertex V1) {
+        Query q = _queries.get();
+        return q.run(V0.index(), V1.index()) < 0
+            ? Double.POSITIVE_INFINITY : q._mu;
+    }
+
+    /** Returns the number of shortcuts added during preprocessing. */
+    public int shortcuts() {
+        return _shortcuts;
+    }
+
+    /** Returns the edges of the graph that make up the arcs numbered ARCS,
+     *  in order, replacing shortcuts by the arcs they stand for. */
+    @SuppressWarnings("unchecked")
+    private List<Graph<VLabel, ELabel>.Edge> unpack(List<Integer> arcs) {
+        ArrayList<Graph<VLabel, ELabel>.Edge> path =
+            new ArrayList<Graph<VLabel, ELabel>.Edge>();
+        int[] stack = new int[16];
+        for (int a : arcs) {
+            int sp = 0;
+            stack[sp++] = a;
+            while (sp > 0) {
+                int b = stack[--sp];
+                if (_arcFirst[b] < 0) {
+                    path.add((Graph<VLabel, ELabel>.Edge) _arcEdge[b]);
+                } else {
+                    if (sp + 2 > stack.length) {
+                        stack = Arrays.copyOf(stack, 2 * stack.length);
+                    }
+                    stack[sp++] = _arcSecond[b];
+                    stack[sp++] = _arcFirst[b];
+                }
+            }
+        }
+        return path;
+    }
+
+    /* Preprocessing */
+
+    /** Add an arc from U to W of weight WEIGHT that stands for the edge
+     *  EDGE, or, if EDGE is null, for arc FIRST followed by arc SECOND. */
+    private void addArc(int u, int w, double weight, Object edge,
+                        int first, int second) {
+        if (_arcs == _arcTo.length) {
+            int len = 2 * _arcs;
+            _arcTo = Arrays.copyOf(_arcTo, len);
+            _arcFrom = Arrays.copyOf(_arcFrom, len);
+            _arcWeight = Arrays.copyOf(_arcWeight, len);
+            _arcFirst = Arrays.copyOf(_arcFirst, len);
+            _arcSecond = Arrays.copyOf(_arcSecond, len);
+            _arcEdge = Arrays.copyOf(_arcEdge, len);
+        }
+        _arcFrom[_arcs] = u;
+        _arcTo[_arcs] = w;
+        _arcWeight[_arcs] = weight;
+        _arcEdge[_arcs] = edge;
+        _arcFirst[_arcs] = first;
+        _arcSecond[_arcs] = second;
+        _out.add(u, _arcs);
+        _in.add(w, _arcs);
+        _arcs += 1;
+    }
+
+    /** Contract all vertices of G, recording their ranks.  Vertices are
+     *  taken in order of increasing priority (see priority), which is
+     *  recomputed lazily: a vertex whose priority has grown since it
+     *  was queued goes back on the queue. */
+    private void contract(Graph<VLabel, ELabel> G) {
+        _rank = new int[_bound];
+        _contracted = new boolean[_bound];
+        _deleted = new int[_bound];
+        _touched = new int[_bound];
+        _witnessDist = new double[_bound];
+        _witnessStamp = new int[_bound];
+        _witnessOpen = new IndexedHeap(_bound);
+        IndexedHeap queue = new IndexedHeap(_bound);
+        for (Graph<VLabel, ELabel>.Vertex v : G.vertices()) {
+            queue.insert(v.index(), priority(v.index()));
+        }
+        int rank = 0;
+        while (!queue.isEmpty()) {
+            int v = queue.poll();
+            double p = priority(v);
+            if (!queue.isEmpty() && p > queue.minKey()) {
+                queue.insert(v, p);
+                continue;
+            }
+            shortcut(v, false);
+            _contracted[v] = true;
+            _rank[v] = rank;
+            rank += 1;
+            for (int k = 0; k < _out.size(v); k += 1) {
+                neighborContracted(_arcTo[_out.get(v, k)], rank, queue);
+            }
+            for (int k = 0; k < _in.size(v); k += 1) {
+                neighborContracted(_arcFrom[_in.get(v, k)], rank, queue);
+            }
+        }
+        _touched = null;
+        _witnessDist = null;
+        _witnessStamp = null;
+        _witnessOpen = null;
+    }
+
+    /** Note that the neighbor of U whose rank is RANK-1 has just been
+     *  contracted: drop U's arcs to and from contracted vertices, which
+     *  are no longer needed for preprocessing, and update U's priority in
+     *  QUEUE.  Does nothing if U was already told about this neighbor. */
+    private void neighborContracted(int u, int rank, IndexedHeap queue) {
+        if (_contracted[u] || _touched[u] == rank) {
+            return;
+        }
+        _touched[u] = rank;
+        _deleted[u] += 1;
+        _out.retain(u, _arcTo, _contracted);
+        _in.retain(u, _arcFrom, _contracted);
+        if (queue.contains(u)) {
+            queue.changeKey(u, priority(u));
+        }
+    }
+
+    /** Returns the priority of contracting V: the number of shortcuts it
+     *  would need less the number of arcs it would remove (its edge
+     *  difference), plus the number of its neighbors already contracted,
+     *  which spreads contraction evenly over the graph. */
+    private double priority(int v) {
+        int removed = 0;
+        for (int k = 0; k < _out.size(v); k += 1) {
+            removed += _contracted[_arcTo[_out.get(v, k)]] ? 0 : 1;
+        }
+        for (int k = 0; k < _in.size(v); k += 1) {
+            removed += _contracted[_arcFrom[_in.get(v, k)]] ? 0 : 1;
+        }
+        return shortcut(v, true) - removed + _deleted[v];
+    }
+
+    /** Add the shortcuts needed to contract V, unless SIMULATE, and return
+     *  how many there are.  A shortcut u -> w is needed for arcs u -> v
+     *  and v -> w unless a witness search finds a path from u to w that
+     *  avoids v and is no longer. */
+    private int shortcut(int v, boolean simulate) {
+        int count = 0;
+        double maxOut = 0.0;
+        for (int j = 0, nj = _out.size(v); j < nj; j += 1) {
+            int b = _out.get(v, j);
+            if (!_contracted[_arcTo[b]]) {
+                maxOut = Math.max(maxOut, _arcWeight[b]);
+            }
+        }
+        for (int i = 0, ni = _in.size(v); i < ni; i += 1) {
+            int a = _in.get(v, i);
+            int u = _arcFrom[a];
+            if (u == v || _contracted[u]) {
+                continue;
+            }
+            witnessSearch(u, v, _arcWeight[a] + maxOut,
+                          simulate ? SIMULATE_SETTLE_LIMIT
+                          : WITNESS_SETTLE_LIMIT);
+            for (int j = 0, nj = _out.size(v); j < nj; j += 1) {
+                int b = _out.get(v, j);
+                int w = _arcTo[b];
+                if (w == u || _contracted[w]) {
+                    continue;
+                }
+                double weight = _arcWeight[a] + _arcWeight[b];
+                if (witness(w) <= weight) {
+                    continue;
+                }
+                count += 1;
+                if (!simulate) {
+                    addArc(u, w, weight, null, a, b);
+                    _shortcuts += 1;
+                }
+            }
+        }
+        return count;
+    }
+
+    /** Find minimal distances from U to vertices not yet contracted,
+     *  avoiding V, up to distance LIMIT, settling at most MAXSETTLED
+     *  vertices. */
+    private void witnessSearch(int u, int v, double limit, int maxSettled) {
+        _witnessEpoch += 1;
+        _witnessOpen.clear();
+        _witnessDist[u] = 0.0;
+        _witnessStamp[u] = _witnessEpoch;
+        _witnessOpen.insert(u, 0.0);
+        int settled = 0;
+        while (!_witnessOpen.isEmpty() && settled < maxSettled
+               && _witnessOpen.minKey() <= limit) {
+            int x = _witnessOpen.poll();
+            settled += 1;
+            double dx = _witnessDist[x];
+            for (int k = 0, d = _out.size(x); k < d; k += 1) {
+                int b = _out.get(x, k);
+                int y = _arcTo[b];
+                if (y == v || _contracted[y]) {
+                    continue;
+                }
+                double g = dx + _arcWeight[b];
+                if (_witnessStamp[y] != _witnessEpoch) {
+                    _witnessStamp[y] = _witnessEpoch;
+                    _witnessDist[y] = g;
+                    _witnessOpen.insert(y, g);
+                } else if (g < _witnessDist[y]) {
+                    _witnessDist[y] = g;
+                    if (_witnessOpen.contains(y)) {
+                        _witnessOpen.decreaseKey(y, g);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Returns the distance to W found by the last witness search, or
+     *  Double.POSITIVE_INFINITY if it did not reach W. */
+    private double witness(int w) {
+        return _witnessStamp[w] == _witnessEpoch ? _witnessDist[w]
+            : Double.POSITIVE_INFINITY;
+    }
+
+    /** Build the upward search graphs from my arcs: each arc to a vertex
+     *  of higher rank is stored with its tail in the forward graph, and
+     *  each arc from a vertex of higher rank is stored with its head in
+     *  the backward graph. */
+    private void buildSearchGraphs() {
+        _upStart = new int[_bound + 1];
+        _downStart = new int[_bound + 1];
+        for (int a = 0; a < _arcs; a += 1) {
+            int u = _arcFrom[a], w = _arcTo[a];
+            if (_rank[w] > _rank[u]) {
+                _upStart[u + 1] += 1;
+            } else if (_rank[u] > _rank[w]) {
+                _downStart[w + 1] += 1;
+            }
+        }
+        for (int i = 0; i < _bound; i += 1) {
+            _upStart[i + 1] += _upStart[i];
+            _downStart[i + 1] += _downStart[i];
+        }
+        _upArc = new int[_upStart[_bound]];
+        _downArc = new int[_downStart[_bound]];
+        int[] upNext = Arrays.copyOf(_upStart, _bound);
+        int[] downNext = Arrays.copyOf(_downStart, _bound);
+        for (int a = 0; a < _arcs; a += 1) {
+            int u = _arcFrom[a], w = _arcTo[a];
+            if (_rank[w] > _rank[u]) {
+                _upArc[upNext[u]++] = a;
+            } else if (_rank[u] > _rank[w]) {
+                _downArc[downNext[w]++] = a;
+            }
+        }
+    }
+
+    /** The working storage of queries, one per thread. */
+    private class Query {
+        /** Storage for queries of my hierarchy. */
+        Query() {
+            _distF = new double[_bound];
+            _distB = new double[_bound];
+            _stampF = new int[_bound];
+            _stampB = new int[_bound];
+            _parentF = new int[_bound];
+            _parentB = new int[_bound];
+            _openF = new IndexedHeap(_bound);
+            _openB = new IndexedHeap(_bound);
+        }
+
+        /** Search upward from S and T at once, setting _mu to the weight
+         *  of a minimal path from S to T and returning the vertex at
+         *  which its two halves meet, or -1 if there is no path. */
+        int run(int s, int t) {
+            _epoch += 1;
+            _openF.clear();
+            _openB.clear();
+            reach(s, 0.0, -1, true);
+            reach(t, 0.0, -1, false);
+            _mu = s == t ? 0.0 : Double.POSITIVE_INFINITY;
+            int meet = s == t ? s : -1;
+            while (true) {
+                boolean moreF = !_openF.isEmpty() && _openF.minKey() < _mu;
+                boolean moreB = !_openB.isEmpty() && _openB.minKey() < _mu;
+                if (!moreF && !moreB) {
+                    break;
+                }
+                boolean forward =
+                    moreF && (!moreB || _openF.minKey() <= _openB.minKey());
+                IndexedHeap open = forward ? _openF : _openB;
+                int u = open.poll();
+                double du = dist(u, forward);
+                double total = du + dist(u, !forward);
+                if (total < _mu) {
+                    _mu = total;
+                    meet = u;
+                }
+                if (stalled(u, du, forward)) {
+                    continue;
+                }
+                int[] start = forward ? _upStart : _downStart;
+                int[] arcs = forward ? _upArc : _downArc;
+                for (int k = start[u]; k < start[u + 1]; k += 1) {
+                    int a = arcs[k];
+                    int w = forward ? _arcTo[a] : _arcFrom[a];
+                    double g = du + _arcWeight[a];
+                    if (g < dist(w, forward)) {
+                        reach(w, g, a, forward);
+                    }
+                }
+            }
+            return meet;
+        }
+
+        /** Returns true iff the search in direction FORWARD has reached
+         *  U, at distance DU, by a path that is not minimal, as shown by
+         *  a shorter path through a vertex of higher rank.  The search
+         *  need not continue from such vertices ("stall-on-demand"). */
+        boolean stalled(int u, double du, boolean forward) {
+            int[] start = forward ? _downStart : _upStart;
+            int[] arcs = forward ? _downArc : _upArc;
+            for (int k = start[u]; k < start[u + 1]; k += 1) {
+                int a = arcs[k];
+                int x = forward ? _arcFrom[a] : _arcTo[a];
+                if (dist(x, forward) + _arcWeight[a] < du) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /** Returns the best known distance of vertex V from the source
+         *  (if FORWARD) or to the target (otherwise). */
+        double dist(int v, boolean forward) {
+            if (forward) {
+                return _stampF[v] == _epoch ? _distF[v]
+                    : Double.POSITIVE_INFINITY;
+            } else {
+                return _stampB[v] == _epoch ? _distB[v]
+                    : Double.POSITIVE_INFINITY;
+            }
+        }
+
+        /** Record that V is reached at distance D by way of arc A in the
+         *  forward search (if FORWARD) or the backward search. */
+        void reach(int v, double d, int a, boolean forward) {
+            IndexedHeap open = forward ? _openF : _openB;
+            if (forward) {
+                _stampF[v] = _epoch;
+                _distF[v] = d;
+                _parentF[v] = a;
+            } else {
+                _stampB[v] = _epoch;
+                _distB[v] = d;
+                _parentB[v] = a;
+            }
+            if (open.contains(v)) {
+                open.decreaseKey(v, d);
+            } else {
+                open.insert(v, d);
+            }
+        }
+
+        /** Distances, stamps, and parent arcs of the forward search. */
+        private final double[] _distF;
+        /** Distances of the backward search. */
+        private final double[] _distB;
+        /** Stamps of vertices reached by each search. */
+        private final int[] _stampF, _stampB;
+        /** Arcs by which vertices were reached by each search. */
+        private final int[] _parentF, _parentB;
+        /** Open sets of each search. */
+        private final IndexedHeap _openF, _openB;
+        /** The stamp of the current query. */
+        private int _epoch;
+        /** The weight of the best path found by the current query. */
+        private double _mu;
+    }
+
+    /** Maximum number of vertices settled by a witness search.  Stopping
+     *  early only adds shortcuts that are not strictly needed. */
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+    /** Maximum number of vertices settled by a witness search made only
+     *  to estimate a priority. */
+    private static final int SIMULATE_SETTLE_LIMIT = 50;
+
+    /** True iff the graph is directed. */
+    private final boolean _directed;
+    /** The indexBound() of the graph. */
+    private final int _bound;
+    /** Number of arcs. */
+    private int _arcs;
+    /** Number of shortcuts. */
+    private int _shortcuts;
+    /** Tail, head, and weight of each arc. */
+    private int[] _arcFrom, _arcTo;
+    /** Weight of each arc. */
+    private double[] _arcWeight;
+    /** For shortcuts, the two arcs replaced; -1 for other arcs. */
+    private int[] _arcFirst, _arcSecond;
+    /** For arcs that are not shortcuts, the edge of the graph. */
+    private Object[] _arcEdge;
+    /** Arcs leaving and entering each vertex, during preprocessing. */
+    private ArcLists _out, _in;
+    /** Rank of each vertex in the order of contraction. */
+    private int[] _rank;
+    /** True for vertices already contracted during preprocessing. */
+    private boolean[] _contracted;
+    /** Number of contracted neighbors of each vertex. */
+    private int[] _deleted;
+    /** _touched[v] is one more than the rank of the last contracted
+     *  neighbor of v. */
+    private int[] _touched;
+    /** Distances and stamps of the current witness search. */
+    private double[] _witnessDist;
+    /** _witnessStamp[v] == _witnessEpoch iff _witnessDist[v] is valid. */
+    private int[] _witnessStamp;
+    /** Stamp of the current witness search. */
+    private int _witnessEpoch;
+    /** Open set of the witness search. */
+    private IndexedHeap _witnessOpen;
+    /** Arcs to higher ranks leaving vertex i are
+     *  _upArc[_upStart[i] .. _upStart[i+1]-1]. */
+    private int[] _upStart, _upArc;
+    /** Arcs from higher ranks entering vertex i are
+     *  _downArc[_downStart[i] .. _downStart[i+1]-1]. */
+    private int[] _downStart, _downArc;
+    /** Query storage for each thread. */
+    private final ThreadLocal<Query> _queries = new ThreadLocal<Query>() {
+        @Override
+        protected Query initialValue() {
+            return new Query();
+        }
+    };
+
+    /** Growable lists of arc numbers, one per vertex index. */
+    private static class ArcLists {
+        /** Empty lists for vertex indices 0 .. N-1. */
+        ArcLists(int n) {
+            _lists = new int[n][];
+            _sizes = new int[n];
+        }
+
+        /** Returns the length of the list for V. */
+        int size(int v) {
+            return _sizes[v];
+        }
+
+        /** Returns item K of the list for V. */
+        int get(int v, int k) {
+            return _lists[v][k];
+        }
+
+        /** Remove from the list for V each arc a for which
+         *  CONTRACTED[ENDS[a]] is true. */
+        void retain(int v, int[] ends, boolean[] contracted) {
+            int[] list = _lists[v];
+            int n = 0;
+            for (int k = 0; k < _sizes[v]; k += 1) {
+                if (!contracted[ends[list[k]]]) {
+                    list[n] = list[k];
+                    n += 1;
+                }
+            }
+            _sizes[v] = n;
+        }
+
+        /** Append ARC to the list for V. */
+        void add(int v, int arc) {
+            int[] list = _lists[v];
+            int n = _sizes[v];
+            if (list == null) {
+                list = _lists[v] = new int[4];
+            } else if (n == list.length) {
+                list = _lists[v] = Arrays.copyOf(list, 2 * n);
+            }
+            list[n] = arc;
+            _sizes[v] = n + 1;
+        }
+
+        /** The lists. */
+        private final int[][] _lists;
+        /** Their lengths. */
+        private final int[] _sizes;
+    }
+}
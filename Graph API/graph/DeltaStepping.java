@@ -0,0 +1,209 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** The state of one delta-stepping single-source shortest-path search,
+ *  as described for Graphs.deltaStepping.  Tentative distances are kept
+ *  as the bits of doubles in an AtomicLongArray, so that parallel tasks
+ *  can lower them with compare-and-set.  Each task collects the vertices
+ *  whose distances it lowered, and these are sorted into buckets between
+ *  rounds by a single thread.
+ *  @author Julian Wong
+ */
+class DeltaStepping<VLabel, ELabel> {
+
+    /** A search of G, with edge weights given by EWEIGHTER and buckets of
+     *  width DELTA, that runs its tasks on POOL. */
+    DeltaStepping(ForkJoinPool pool, Graph<VLabel, ELabel> G,
+                  Weighting<? super ELabel> eweighter, double delta) {
+        _pool = pool;
+        _G = G;
+        _eweighter = eweighter;
+        _delta = delta;
+    }
+
+    /** Returns the distances from SOURCE to each vertex, indexed by
+     *  Vertex.index(). */
+    double[] run(Graph<VLabel, ELabel>.Vertex source) {
+        int n = _G.indexBound();
+        _byIndex = new Object[n];
+        for (Graph<VLabel, ELabel>.Vertex v : _G.vertices()) {
+            _byIndex[v.index()] = v;
+        }
+        _dist = new AtomicLongArray(n);
+        for (int i = 0; i < n; i += 1) {
+            _dist.set(i, INFINITY);
+        }
+        _taken = new int[n];
+        _settled = new int[n];
+        _buckets = new ArrayList<IntList>();
+
+        _dist.set(source.index(), Double.doubleToLongBits(0.0));
+        place(source.index());
+        for (int b = 0; b < _buckets.size(); b += 1) {
+            IntList removed = new IntList();
+            while (_buckets.get(b) != null && _buckets.get(b).size() > 0) {
+                IntList frontier = take(b);
+                for (int k = 0; k < frontier.size(); k += 1) {
+                    int v = frontier.get(k);
+                    if (_settled[v] != b + 1) {
+                        _settled[v] = b + 1;
+                        removed.add(v);
+                    }
+                }
+                placeAll(_pool.invoke(new Relax(frontier, 0, frontier.size(),
+                                                true)));
+            }
+            placeAll(_pool.invoke(new Relax(removed, 0, removed.size(),
+                                            false)));
+            _buckets.set(b, null);
+        }
+
+        double[] result = new double[n];
+        for (int i = 0; i < n; i += 1) {
+            result[i] = Double.longBitsToDouble(_dist.get(i));
+        }
+        return result;
+    }
+
+    /** Returns the index of the bucket for distance D. */
+    private int bucket(double d) {
+        return (int) Math.min(d / _delta, Integer.MAX_VALUE - 1);
+    }
+
+    /** Put the vertex with index V into the bucket for its distance. */
+    private void place(int v) {
+        int b = bucket(Double.longBitsToDouble(_dist.get(v)));
+        while (_buckets.size() <= b) {
+            _buckets.add(null);
+        }
+        if (_buckets.get(b) == null) {
+            _buckets.set(b, new IntList());
+        }
+        _buckets.get(b).add(v);
+    }
+
+    /** Place each of the vertices in VERTICES. */
+    private void placeAll(IntList vertices) {
+        for (int k = 0; k < vertices.size(); k += 1) {
+            place(vertices.get(k));
+        }
+    }
+
+    /** Empty bucket B, returning the vertices in it whose distances
+     *  still belong there, each once. */
+    private IntList take(int b) {
+        IntList bucket = _buckets.get(b);
+        _buckets.set(b, new IntList());
+        _round += 1;
+        IntList result = new IntList();
+        for (int k = 0; k < bucket.size(); k += 1) {
+            int v = bucket.get(k);
+            if (_taken[v] != _round
+                && bucket(Double.longBitsToDouble(_dist.get(v))) == b) {
+                _taken[v] = _round;
+                result.add(v);
+            }
+        }
+        return result;
+    }
+
+    /** Lower the distance of the vertex with index W to D, if that is
+     *  lower, returning true iff it was. */
+    private boolean lower(int w, double d) {
+        while (true) {
+            long bits = _dist.get(w);
+            if (d >= Double.longBitsToDouble(bits)) {
+                return false;
+            }
+            if (_dist.compareAndSet(w, bits, Double.doubleToLongBits(d))) {
+                return true;
+            }
+        }
+    }
+
+    /** A task that relaxes the light or heavy edges of some vertices and
+     *  returns the vertices whose distances it lowered. */
+    private class Relax extends RecursiveTask<IntList> {
+        /** Relax the light edges (if LIGHT) or heavy edges of the vertices
+         *  VERTICES[LO .. HI-1]. */
+        Relax(IntList vertices, int lo, int hi, boolean light) {
+            _vertices = vertices;
+            _lo = lo;
+            _hi = hi;
+            _light = light;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected IntList compute() {
+            if (_hi - _lo > GRAIN) {
+                int mid = (_lo + _hi) >>> 1;
+                Relax left = new Relax(_vertices, _lo, mid, _light);
+                left.fork();
+                IntList result =
+                    new Relax(_vertices, mid, _hi, _light).compute();
+                result.addAll(left.join());
+                return result;
+            }
+            IntList lowered = new IntList();
+            for (int k = _lo; k < _hi; k += 1) {
+                int v = _vertices.get(k);
+                Graph<VLabel, ELabel>.Vertex V =
+                    (Graph<VLabel, ELabel>.Vertex) _byIndex[v];
+                double dv = Double.longBitsToDouble(_dist.get(v));
+                for (int j = 0, d = _G.outDegree(V); j < d; j += 1) {
+                    Graph<VLabel, ELabel>.Edge e = _G.outEdge(V, j);
+                    double weight = _eweighter.weight(e.getLabel());
+                    if ((weight <= _delta) != _light) {
+                        continue;
+                    }
+                    int w = e.getV(V).index();
+                    if (lower(w, dv + weight)) {
+                        lowered.add(w);
+                    }
+                }
+            }
+            return lowered;
+        }
+
+        /** The vertices whose edges I relax. */
+        private final IntList _vertices;
+        /** The range of _vertices I handle. */
+        private final int _lo, _hi;
+        /** True iff I relax light edges. */
+        private final boolean _light;
+    }
+
+    /** Largest number of vertices a task relaxes without splitting. */
+    private static final int GRAIN = 256;
+    /** The bits of Double.POSITIVE_INFINITY. */
+    private static final long INFINITY =
+        Double.doubleToLongBits(Double.POSITIVE_INFINITY);
+
+    /** The pool that runs my tasks. */
+    private final ForkJoinPool _pool;
+    /** The graph searched. */
+    private final Graph<VLabel, ELabel> _G;
+    /** The edge weighting. */
+    private final Weighting<? super ELabel> _eweighter;
+    /** The width of a bucket. */
+    private final double _delta;
+    /** The vertices of _G, by index. */
+    private Object[] _byIndex;
+    /** Bits of the tentative distance of each vertex. */
+    private AtomicLongArray _dist;
+    /** _buckets.get(b) holds the vertices whose tentative distances lie in
+     *  [b * _delta, (b+1) * _delta), possibly along with stale entries,
+     *  or is null. */
+    private ArrayList<IntList> _buckets;
+    /** _taken[v] == _round iff v was taken from a bucket in this round. */
+    private int[] _taken;
+    /** The current round. */
+    private int _round;
+    /** _settled[v] == b+1 iff v was removed from bucket b. */
+    private int[] _settled;
+}
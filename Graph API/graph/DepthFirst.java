@@ -1,32 +1,59 @@
 package graph;
 
+import java.util.Arrays;
+
 /** A depth-first traversal of a graph.  One typically specializes
  *  this class by overriding the Visit methods, as needed. By default,
  *  no action is taken on any vertex or edge.  A Visit method may
  *  throw a RejectException or a StopException to alter the course of a
  *  traversal.
- *  @author
+ *
+ *  Vertices are visited in true pre- and post-order, and so are the
+ *  edges by which the traversal reaches new vertices (the edges of the
+ *  depth-first tree).  The traversal keeps its own stack rather than
+ *  recursing, so that it handles paths of any length.  Each frame of the
+ *  stack is a vertex, the tree edge that reached it, and the position
+ *  of the next of its outgoing edges to consider, held in arrays that
+ *  are reused from one traversal to the next.  Which vertices have been
+ *  traversed is recorded by stamping their index() values, so that
+ *  starting a new traversal takes constant time, and continuing one
+ *  skips each finished vertex in constant time.  The stack is emptied
+ *  whenever a traversal ends, whether normally, by a StopException, or
+ *  by any other exception from a Visit method, so that a stopped
+ *  traversal cannot be resumed, but neither can its frames leak into
+ *  the next.
+ *  @author Julian Wong
  */
 public class DepthFirst<VLabel, ELabel> {
 
     /** Perform a depth-first traversal of G over all vertices reachable
      *  from V, or as modified by one of the visit methods throwing an
      *  exception. */
-    public void traverse(Graph<VLabel, ELabel> G, Vertex<VLabel> v) {
-        // FILL IN
+    public void traverse(Graph<VLabel, ELabel> G,
+                         Graph<VLabel, ELabel>.Vertex v) {
+        _graph = G;
+        if (_epoch == Integer.MAX_VALUE) {
+            Arrays.fill(_marks, 0);
+            _epoch = 0;
+        }
+        _epoch += 1;
+        run(v);
     }
 
     /** Continue the previous traversal starting from V.
      *  Continuing a traversal means that we do not traverse
-     *  vertices or edges that have been traversed previously. */
-    public void continueTraversing(Vertex<VLabel> v) {
-        // FILL IN
+     *  vertices or edges that have been traversed previously.  It does
+     *  not resume a traversal that was stopped: the remaining edges of
+     *  vertices on the path to where it stopped are not considered, and
+     *  those vertices are not postvisited. */
+    public void continueTraversing(Graph<VLabel, ELabel>.Vertex v) {
+        run(v);
     }
 
     /** If the traversal ends prematurely, returns the Vertex argument to
      *  preVisit or postVisit that caused a Visit stop the traversal.
      *  Otherwise, returns null. */
-    public Vertex<VLabel> finalVertex() {
+    public Graph<VLabel, ELabel>.Vertex finalVertex() {
         return _finalVertex;
     }
 
@@ -34,15 +61,14 @@ public class DepthFirst<VLabel, ELabel> {
      *  preVisit or postVisit that caused a Visit routine to stop the
      *  traversal. If it was not an edge that caused termination,
      *  returns null. */
-    public Edge<VLabel, ELabel> finalEdge() {
+    public Graph<VLabel, ELabel>.Edge finalEdge() {
         return _finalEdge;
     }
 
     /** Returns the graph currently being traversed.  Undefined if no traversal
      *  is in progress. */
     protected Graph<VLabel, ELabel> theGraph() {
-        return null;
-        // FILL IN
+        return _graph;
     }
 
     /** Method to be called on the first visit to vertex V in
@@ -50,33 +76,187 @@ public class DepthFirst<VLabel, ELabel> {
      *  of V.  If this routine throws a StopException, the traversal ends.
      *  If it throws a RejectException, outgoing edges are not considered.
      *  The default does nothing.  */
-    protected void preVisit(Vertex<VLabel> v) {
+    protected void preVisit(Graph<VLabel, ELabel>.Vertex v) {
     }
 
     /** Method to be called on leaving vertex V after visiting all its
      *  unvisited successors in a traversal.  If this routine throws
      *  a StopException, the traversal ends.  A RejectException has no effect.
      *  The default simply returns true. */
-    protected void postVisit(Vertex<VLabel> v) {
+    protected void postVisit(Graph<VLabel, ELabel>.Vertex v) {
     }
 
     /** Method to be called when traversing an edge E from vertex V0
      *  during a traversal.  If this routine throws a StopException,
      *  the traversal ends. If it throws a RejectException, the node at the
      *  other end of the edge is not traversed.  The default does nothing. */
-    protected void preVisit(Edge<VLabel, ELabel> e, Vertex<VLabel> v0) {
+    protected void preVisit(Graph<VLabel, ELabel>.Edge e,
+                            Graph<VLabel, ELabel>.Vertex v0) {
     }
 
     /** Method to be called after traversing the edge E from V0
      *  and finishing the traversal from the other incident vertex.
      *  If this routine throws a StopException, the traversal ends.
      *  A RejectException has no effect. The default does nothing. */
-    protected void postVisit(Edge<VLabel, ELabel> e, Vertex<VLabel> v0) {
+    protected void postVisit(Graph<VLabel, ELabel>.Edge e,
+                             Graph<VLabel, ELabel>.Vertex v0) {
+    }
+
+    /** Traverse _graph from V, unless V has already been traversed. */
+    private void run(Graph<VLabel, ELabel>.Vertex v) {
+        _finalVertex = null;
+        _finalEdge = null;
+        if (marked(v)) {
+            return;
+        }
+        Graph<VLabel, ELabel> G = _graph;
+        try {
+            enter(v, null);
+            while (_depth > 0) {
+                int top = _depth - 1;
+                Graph<VLabel, ELabel>.Vertex u = frameVertex(top);
+                int k = _cursors[top];
+                if (k < G.outDegree(u)) {
+                    _cursors[top] = k + 1;
+                    Graph<VLabel, ELabel>.Edge e = G.outEdge(u, k);
+                    Graph<VLabel, ELabel>.Vertex w = e.getV(u);
+                    if (!marked(w)) {
+                        _finalVertex = u;
+                        _finalEdge = e;
+                        try {
+                            preVisit(e, u);
+                        } catch (RejectException x) {
+                            continue;
+                        }
+                        enter(w, e);
+                    }
+                } else {
+                    leave();
+                }
+            }
+            _finalVertex = null;
+            _finalEdge = null;
+        } catch (StopException x) {
+            /* The traversal ends here. */
+        } finally {
+            while (_depth > 0) {
+                pop();
+            }
+        }
+    }
+
+    /** Mark V as traversed, reached by the tree edge E (null for the
+     *  start of a traversal), previsit it, and push its frame. */
+    private void enter(Graph<VLabel, ELabel>.Vertex v,
+                       Graph<VLabel, ELabel>.Edge e) {
+        mark(v);
+        push(v, e);
+        _finalVertex = v;
+        _finalEdge = null;
+        try {
+            preVisit(v);
+        } catch (RejectException x) {
+            _cursors[_depth - 1] = Integer.MAX_VALUE;
+        }
+    }
+
+    /** Pop the top frame, postvisiting its vertex and then the tree edge
+     *  that reached it. */
+    private void leave() {
+        int top = _depth - 1;
+        Graph<VLabel, ELabel>.Vertex v = frameVertex(top);
+        Graph<VLabel, ELabel>.Edge e = frameEdge(top);
+        pop();
+        _finalVertex = v;
+        _finalEdge = null;
+        try {
+            postVisit(v);
+        } catch (RejectException x) {
+            /* Has no effect. */
+        }
+        if (e != null) {
+            Graph<VLabel, ELabel>.Vertex v0 = e.getV(v);
+            _finalVertex = v0;
+            _finalEdge = e;
+            try {
+                postVisit(e, v0);
+            } catch (RejectException x) {
+                /* Has no effect. */
+            }
+        }
+    }
+
+    /** Push a frame for V, reached by E, with its edge cursor at 0. */
+    private void push(Graph<VLabel, ELabel>.Vertex v,
+                      Graph<VLabel, ELabel>.Edge e) {
+        if (_depth == _cursors.length) {
+            int n = 2 * _depth;
+            _cursors = Arrays.copyOf(_cursors, n);
+            _frameVertices = Arrays.copyOf(_frameVertices, n);
+            _frameEdges = Arrays.copyOf(_frameEdges, n);
+        }
+        _cursors[_depth] = 0;
+        _frameVertices[_depth] = v;
+        _frameEdges[_depth] = e;
+        _depth += 1;
+    }
+
+    /** Discard the top frame. */
+    private void pop() {
+        _depth -= 1;
+        _frameVertices[_depth] = null;
+        _frameEdges[_depth] = null;
     }
 
+    /** Returns the vertex of frame K. */
+    @SuppressWarnings("unchecked")
+    private Graph<VLabel, ELabel>.Vertex frameVertex(int k) {
+        return (Graph<VLabel, ELabel>.Vertex) _frameVertices[k];
+    }
+
+    /** Returns the tree edge of frame K, or null. */
+    @SuppressWarnings("unchecked")
+    private Graph<VLabel, ELabel>.Edge frameEdge(int k) {
+        return (Graph<VLabel, ELabel>.Edge) _frameEdges[k];
+    }
+
+    /** Record V as traversed in the current traversal. */
+    private void mark(Graph<VLabel, ELabel>.Vertex v) {
+        int i = v.index();
+        if (i >= _marks.length) {
+            _marks = Arrays.copyOf(_marks, Math.max(i + 1,
+                                                    2 * _marks.length));
+        }
+        _marks[i] = _epoch;
+    }
+
+    /** Returns true iff V has been traversed in the current traversal. */
+    private boolean marked(Graph<VLabel, ELabel>.Vertex v) {
+        int i = v.index();
+        return i < _marks.length && _marks[i] == _epoch;
+    }
+
+    /** Initial length of my arrays. */
+    private static final int INITIAL_SIZE = 16;
+
     /** The Vertex (if any) that terminated the last traversal. */
-    private Vertex<VLabel> _finalVertex;
+    private Graph<VLabel, ELabel>.Vertex _finalVertex;
     /** The Edge (if any) that terminated the last traversal. */
-    private Edge<VLabel, ELabel> _finalEdge;
-
+    private Graph<VLabel, ELabel>.Edge _finalEdge;
+    /** The graph being traversed. */
+    private Graph<VLabel, ELabel> _graph;
+    /** _marks[v.index()] == _epoch iff vertex v has been traversed in
+     *  the current traversal. */
+    private int[] _marks = new int[INITIAL_SIZE];
+    /** The stamp of the current traversal. */
+    private int _epoch;
+    /** Number of frames on the stack. */
+    private int _depth;
+    /** For frame k, _cursors[k] is the position of the next outgoing edge
+     *  of _frameVertices[k] to consider, and _frameEdges[k] is the tree
+     *  edge that reached it, or null. */
+    private int[] _cursors = new int[INITIAL_SIZE];
+    /** Vertices and tree edges of the frames. */
+    private Object[] _frameVertices = new Object[INITIAL_SIZE],
+        _frameEdges = new Object[INITIAL_SIZE];
 }
@@ -0,0 +1,219 @@
+package graph;
+
+import java.util.Objects;
+
+/** A hashed index of the edges of a graph, recording how many edges
+ *  there are between each pair of vertices (u, v) and between each pair
+ *  with a given label (u, v, label), so that Graph.contains need not scan
+ *  adjacency lists.  Vertices are identified by their index() values.
+ *  In an undirected index, (u, v) and (v, u) are the same pair.  Edge
+ *  labels must have equals and hashCode methods that do not change while
+ *  the edge is in the graph.  Both tables use open addressing with
+ *  linear probing over primitive arrays, so that neither lookups nor
+ *  updates of existing entries allocate anything.
+ *  @author Julian Wong
+ */
+class EdgeIndex {
+
+    /** An empty index, for a directed graph iff DIRECTED. */
+    EdgeIndex(boolean directed) {
+        this(directed, 0);
+    }
+
+    /** An empty index, for a directed graph iff DIRECTED, with room for
+     *  about EDGES edges before its tables must grow. */
+    EdgeIndex(boolean directed, int edges) {
+        _directed = directed;
+        _pairs = new Table(false, edges);
+        _labeled = new Table(true, edges);
+    }
+
+    /** Record an edge from U to V labeled LABEL. */
+    void add(int u, int v, Object label) {
+        long pair = pair(u, v);
+        _pairs.add(pair, null, 1);
+        _labeled.add(pair, label, 1);
+    }
+
+    /** Forget one edge from U to V labeled LABEL. */
+    void remove(int u, int v, Object label) {
+        long pair = pair(u, v);
+        _pairs.add(pair, null, -1);
+        _labeled.add(pair, label, -1);
+    }
+
+    /** Returns true iff there is an edge from U to V. */
+    boolean contains(int u, int v) {
+        return _pairs.find(pair(u, v), null) >= 0;
+    }
+
+    /** Returns true iff there is an edge from U to V labeled LABEL. */
+    boolean contains(int u, int v, Object label) {
+        return _labeled.find(pair(u, v), label) >= 0;
+    }
+
+    /** Returns the key for the pair (U, V).  The two indices are packed
+     *  into a long and multiplied by an odd constant.  Because that is a
+     *  one-to-one mapping, keys stay distinct.  It also spreads nearby
+     *  pairs, such as (i, i+1) along a chain, over the high-order bits,
+     *  from which the tables take their hash codes. */
+    private long pair(int u, int v) {
+        if (!_directed && u > v) {
+            int t = u;
+            u = v;
+            v = t;
+        }
+        return (((long) u << Integer.SIZE) | (v & 0xffffffffL)) * MIX;
+    }
+
+    /** A table of positive counts keyed by a pair key and, if labeled,
+     *  a label.  Slot k is in use iff _counts[k] > 0.  Removal shifts
+     *  later entries of the same probe sequence back, so that there are
+     *  no tombstones. */
+    private static class Table {
+        /** An empty table, keyed by labels as well as pairs iff LABELED,
+         *  with room for about SIZE entries. */
+        Table(boolean labeled, int size) {
+            int capacity = MIN_CAPACITY;
+            while (capacity * LOAD_FACTOR < size) {
+                capacity *= 2;
+            }
+            _keys = new long[capacity];
+            _labels = labeled ? new Object[capacity] : null;
+            _counts = new int[capacity];
+        }
+
+        /** Returns the slot holding (PAIR, LABEL), or -1 if none. */
+        int find(long pair, Object label) {
+            int mask = _keys.length - 1;
+            for (int k = slot(pair, label); _counts[k] != 0;
+                 k = (k + 1) & mask) {
+                if (_keys[k] == pair
+                    && (_labels == null || Objects.equals(_labels[k],
+                                                          label))) {
+                    return k;
+                }
+            }
+            return -1;
+        }
+
+        /** Add D to the count for (PAIR, LABEL), removing the entry when
+         *  its count drops to 0. */
+        void add(long pair, Object label, int d) {
+            int k = find(pair, label);
+            if (k >= 0) {
+                _counts[k] += d;
+                if (_counts[k] <= 0) {
+                    delete(k);
+                }
+            } else if (d > 0) {
+                if (_size + 1 > _keys.length * LOAD_FACTOR) {
+                    resize(2 * _keys.length);
+                }
+                insert(pair, label, d);
+            }
+        }
+
+        /** Returns the home slot of (PAIR, LABEL). */
+        private int slot(long pair, Object label) {
+            int h = (int) (pair >>> Integer.SIZE);
+            if (_labels != null && label != null) {
+                h = h * LABEL_MIX + label.hashCode();
+                h ^= h >>> HALF;
+                h *= LABEL_MIX;
+            }
+            return (h ^ (h >>> HALF)) & (_keys.length - 1);
+        }
+
+        /** Put a new entry (PAIR, LABEL) with count COUNT in the first
+         *  free slot of its probe sequence. */
+        private void insert(long pair, Object label, int count) {
+            int mask = _keys.length - 1;
+            int k = slot(pair, label);
+            while (_counts[k] != 0) {
+                k = (k + 1) & mask;
+            }
+            _keys[k] = pair;
+            if (_labels != null) {
+                _labels[k] = label;
+            }
+            _counts[k] = count;
+            _size += 1;
+        }
+
+        /** Empty slot K, moving back any later entries that would
+         *  otherwise no longer be found. */
+        private void delete(int k) {
+            int mask = _keys.length - 1;
+            int j = k;
+            while (true) {
+                j = (j + 1) & mask;
+                if (_counts[j] == 0) {
+                    break;
+                }
+                int home = slot(_keys[j], _labels == null ? null
+                                : _labels[j]);
+                boolean between = k <= j ? k < home && home <= j
+                    : k < home || home <= j;
+                if (!between) {
+                    _keys[k] = _keys[j];
+                    if (_labels != null) {
+                        _labels[k] = _labels[j];
+                    }
+                    _counts[k] = _counts[j];
+                    k = j;
+                }
+            }
+            _counts[k] = 0;
+            if (_labels != null) {
+                _labels[k] = null;
+            }
+            _size -= 1;
+        }
+
+        /** Rehash my entries into tables of length CAPACITY. */
+        private void resize(int capacity) {
+            long[] keys = _keys;
+            Object[] labels = _labels;
+            int[] counts = _counts;
+            _keys = new long[capacity];
+            _labels = labels == null ? null : new Object[capacity];
+            _counts = new int[capacity];
+            _size = 0;
+            for (int k = 0; k < keys.length; k += 1) {
+                if (counts[k] != 0) {
+                    insert(keys[k], labels == null ? null : labels[k],
+                           counts[k]);
+                }
+            }
+        }
+
+        /** Pair keys of my slots. */
+        private long[] _keys;
+        /** Labels of my slots, or null if I am not keyed by label. */
+        private Object[] _labels;
+        /** Counts of my slots; 0 marks a free slot. */
+        private int[] _counts;
+        /** Number of slots in use. */
+        private int _size;
+    }
+
+    /** Odd multiplier used to scramble pair keys (2**64 divided by the
+     *  golden ratio). */
+    private static final long MIX = 0x9E3779B97F4A7C15L;
+    /** Odd multiplier used to combine label hash codes with pairs. */
+    private static final int LABEL_MIX = 0x85EBCA6B;
+    /** Half the number of bits in an int. */
+    private static final int HALF = Integer.SIZE / 2;
+    /** Smallest length of a table; a power of 2. */
+    private static final int MIN_CAPACITY = 16;
+    /** Largest fraction of a table in use. */
+    private static final float LOAD_FACTOR = 0.5f;
+
+    /** True iff my graph is directed. */
+    private final boolean _directed;
+    /** Number of edges between each pair of vertices. */
+    private final Table _pairs;
+    /** Number of edges between each pair of vertices with each label. */
+    private final Table _labeled;
+}
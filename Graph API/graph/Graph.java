@@ -3,7 +3,11 @@ package graph;
 import java.util.Comparator;
 import java.util.Collections;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.List;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 
 /* Do not add or remove public or protected members, or modify the signatures of
  * any public methods.  You may make changes that don't affect the API as seen
@@ -70,6 +74,8 @@ public abstract class Graph<VLabel, ELabel> {
         private boolean _marked;
         /** Index number. */
         private int _number;
+        /** My position in _vertices, or -1 if I have been removed. */
+        private int _position;
 
     }
 
@@ -124,6 +130,14 @@ public abstract class Graph<VLabel, ELabel> {
         /** The label on this edge. */
         private final ELabel _label;
 
+        /** My position in _edges, or -1 if I have been removed. */
+        private int _position;
+        /** My position in the list of outgoing edges of _V0. */
+        private int _slot0;
+        /** My position in the list of incoming edges of _V1 (which, in
+         *  an undirected graph, is its list of outgoing edges). */
+        private int _slot1;
+
     }
 
     /*=====  Methods and variables of Graph =====*/
@@ -138,19 +152,45 @@ public abstract class Graph<VLabel, ELabel> {
         return _edges.size();
     }
 
+    /** Returns one more than the largest index() of any vertex ever
+     *  added to me, so that arrays of this length may be indexed by
+     *  the index() of any of my vertices. */
+    int indexBound() {
+        return vnumber;
+    }
+
+    /** Returns a count that changes whenever vertices or edges are added
+     *  to or removed from me, or my edges are reordered. */
+    int modCount() {
+        return _modCount;
+    }
+
     /** Returns true iff I am a directed graph. */
     public abstract boolean isDirected();
 
     /** Returns the number of outgoing edges incident to V. Assumes V is one of
      *  my vertices.  */
     public int outDegree(Vertex v) {
-        return _out.get(v) != null ? _out.get(v).size() : 0;
+        return _out.size(v.index());
     }
 
     /** Returns the number of incoming edges incident to V. Assumes V is one of
      *  my vertices. */
     public int inDegree(Vertex v) {
-        return _in.get(v) != null ? _in.get(v).size() : 0;
+        return _in.size(v.index());
+    }
+
+    /** Returns the Kth of the outgoing edges incident to V, in the order
+     *  delivered by outEdges(V), where 0 <= K < outDegree(V).  Lets
+     *  algorithms in this package scan adjacencies without iterators. */
+    Edge outEdge(Vertex v, int k) {
+        return _out.get(v.index(), k);
+    }
+
+    /** Returns the Kth of the incoming edges incident to V, in the order
+     *  delivered by inEdges(V), where 0 <= K < inDegree(V). */
+    Edge inEdge(Vertex v, int k) {
+        return _in.get(v.index(), k);
     }
 
     /** Returns outDegree(V). This is simply a synonym, intended for
@@ -161,11 +201,13 @@ public abstract class Graph<VLabel, ELabel> {
 
     /** Returns true iff there is an edge (U, V) in me with any label. */
     public boolean contains(Vertex u, Vertex v) {
-        if (_out.get(u) != null) {
-            for (Edge e : _out.get(u)) {
-                if (e.getV(u).equals(v)) {
-                    return true;
-                }
+        if (_index != null) {
+            return _index.contains(u.index(), v.index());
+        }
+        int i = u.index();
+        for (int k = 0, n = _out.size(i); k < n; k += 1) {
+            if (_out.get(i, k).getV(u) == v) {
+                return true;
             }
         }
         return false;
@@ -174,11 +216,14 @@ public abstract class Graph<VLabel, ELabel> {
     /** Returns true iff there is an edge (U, V) in me with label LABEL. */
     public boolean contains(Vertex u, Vertex v,
                             ELabel label) {
-        if (_out.get(u) != null) {
-            for (Edge e: _out.get(u)) {
-                if (e.getV(u).equals(v) && e.getLabel().equals(label)) {
-                    return true;
-                }
+        if (_index != null) {
+            return _index.contains(u.index(), v.index(), label);
+        }
+        int i = u.index();
+        for (int k = 0, n = _out.size(i); k < n; k += 1) {
+            Edge e = _out.get(i, k);
+            if (e.getV(u) == v && Objects.equals(e.getLabel(), label)) {
+                return true;
             }
         }
         return false;
@@ -188,7 +233,9 @@ public abstract class Graph<VLabel, ELabel> {
      *  incident edges. */
     public Vertex add(VLabel label) {
         Vertex vertex = new Vertex(label);
+        vertex._position = _vertices.size();
         _vertices.add(vertex);
+        _modCount += 1;
         return vertex;
     }
 
@@ -199,11 +246,14 @@ public abstract class Graph<VLabel, ELabel> {
                     Vertex to,
                     ELabel label) {
         Edge edge = new Edge(from, to, label);
+        edge._position = _edges.size();
         _edges.add(edge);
-        ArrayList<Edge> x = (_out.get(from) == null)
-            ? new ArrayList<Edge>() : _out.get(from);
-        x.add(edge);
-        _out.put(from, x);
+        _modCount += 1;
+        edge._slot0 = _out.add(from.index(), edge);
+        edge._slot1 = _in.add(to.index(), edge);
+        if (_index != null) {
+            _index.add(from.index(), to.index(), label);
+        }
         return edge;
     }
 
@@ -215,55 +265,204 @@ public abstract class Graph<VLabel, ELabel> {
         return add(from, to, null);
     }
 
-    /** Remove V and all adjacent edges, if present. */
+    /** Remove V and all adjacent edges, if present.  Takes time
+     *  proportional to the number of edges incident to V. */
     public void remove(Vertex v) {
-        ArrayList<Edge> copy;
-        if (_vertices.contains(v)) {
-            _vertices.remove(v);
-            copy = new ArrayList<Edge>(_edges);
-            for (Edge e: copy) {
-                if (e.getV0().equals(v) || e.getV1().equals(v)) {
-                    _edges.remove(e);
-                }
+        if (!isMine(v)) {
+            return;
+        }
+        int i = v.index();
+        for (int k = 0, n = _out.size(i); k < n; k += 1) {
+            unlinkFar(_out.get(i, k), v);
+        }
+        if (_in != _out) {
+            for (int k = 0, n = _in.size(i); k < n; k += 1) {
+                unlinkFar(_in.get(i, k), v);
             }
-            _out.remove(v);
-            for (ArrayList<Edge> value: _out.values()) {
-                copy = new ArrayList<Edge>(value);
-                for (Edge e: copy) {
-                    if (e.getV0().equals(v) || e.getV1().equals(v)) {
-                        value.remove(e);
-                    }
+            _in.clear(i);
+        }
+        _out.clear(i);
+        dropVertex(v);
+    }
+
+    /** Remove E, an edge incident to V, from _edges and from the list of
+     *  the vertex at its other end from V, if that is not V itself. */
+    private void unlinkFar(Edge e, Vertex v) {
+        if (e._position < 0) {
+            return;
+        }
+        dropEdge(e);
+        if (e.getV0() != v) {
+            removeSlot(_out, e.getV0(), e._slot0);
+        } else if (e.getV1() != v) {
+            removeSlot(_in, e.getV1(), e._slot1);
+        }
+    }
+
+    /** Remove the edge at position K of the list for V in ADJ (_out or
+     *  _in) in constant time, by moving the last edge in that list into
+     *  position K and updating its recorded position. */
+    private void removeSlot(Adjacency<Edge> adj, Vertex v, int k) {
+        Edge moved = adj.removeAt(v.index(), k);
+        if (moved != null) {
+            int last = adj.size(v.index());
+            if (adj == _out && moved.getV0() == v && moved._slot0 == last) {
+                moved._slot0 = k;
+            } else {
+                moved._slot1 = k;
+            }
+        }
+    }
+
+    /** Remove all vertices in VS from me, together with their incident
+     *  edges.  Vertices in VS that are not mine are ignored.  Takes time
+     *  linear in my size, regardless of the number of vertices removed. */
+    public void removeAll(Collection<Vertex> vs) {
+        boolean[] doomed = new boolean[indexBound()];
+        boolean any = false;
+        for (Vertex v : vs) {
+            if (isMine(v)) {
+                doomed[v.index()] = any = true;
+            }
+        }
+        if (!any) {
+            return;
+        }
+
+        int j = 0;
+        for (int k = 0; k < _vertices.size(); k += 1) {
+            Vertex v = _vertices.get(k);
+            if (doomed[v.index()]) {
+                v._position = -1;
+                _out.clear(v.index());
+                _in.clear(v.index());
+            } else {
+                v._position = j;
+                _vertices.set(j, v);
+                j += 1;
+            }
+        }
+        _vertices.subList(j, _vertices.size()).clear();
+        _modCount += 1;
+
+        j = 0;
+        for (int k = 0; k < _edges.size(); k += 1) {
+            Edge e = _edges.get(k);
+            if (doomed[e.getV0().index()] || doomed[e.getV1().index()]) {
+                e._position = -1;
+                unindex(e);
+            } else {
+                e._position = j;
+                _edges.set(j, e);
+                j += 1;
+            }
+        }
+        _edges.subList(j, _edges.size()).clear();
+
+        for (Vertex v : _vertices) {
+            retainLive(_out, v);
+            if (_in != _out) {
+                retainLive(_in, v);
+            }
+        }
+    }
+
+    /** Remove the edges that are no longer in _edges from the list for
+     *  V in ADJ (_out or _in), updating the recorded positions of the
+     *  edges that remain. */
+    private void retainLive(Adjacency<Edge> adj, Vertex v) {
+        int i = v.index();
+        int j = 0;
+        for (int k = 0, n = adj.size(i); k < n; k += 1) {
+            Edge e = adj.get(i, k);
+            if (e._position >= 0) {
+                if (adj == _out && e.getV0() == v && e._slot0 == k) {
+                    e._slot0 = j;
+                } else {
+                    e._slot1 = j;
                 }
+                adj.set(i, j, e);
+                j += 1;
             }
         }
+        adj.truncate(i, j);
+    }
+
+    /** Returns true iff V is currently one of my vertices. */
+    boolean isMine(Vertex v) {
+        int k = v._position;
+        return k >= 0 && k < _vertices.size() && _vertices.get(k) == v;
+    }
+
+    /** Returns true iff E is currently one of my edges. */
+    boolean isMine(Edge e) {
+        int k = e._position;
+        return k >= 0 && k < _edges.size() && _edges.get(k) == e;
+    }
+
+    /** Remove V from _vertices in constant time, by moving my last
+     *  vertex into its place. */
+    private void dropVertex(Vertex v) {
+        _modCount += 1;
+        Vertex last = _vertices.remove(_vertices.size() - 1);
+        if (last != v) {
+            _vertices.set(v._position, last);
+            last._position = v._position;
+        }
+        v._position = -1;
+    }
+
+    /** Remove E, if it is still there, from _edges in constant time, by
+     *  moving my last edge into its place. */
+    private void dropEdge(Edge e) {
+        if (e._position < 0) {
+            return;
+        }
+        _modCount += 1;
+        unindex(e);
+        Edge last = _edges.remove(_edges.size() - 1);
+        if (last != e) {
+            _edges.set(e._position, last);
+            last._position = e._position;
+        }
+        e._position = -1;
+    }
+
+    /** Remove E from my edge index, if I have one. */
+    private void unindex(Edge e) {
+        if (_index != null) {
+            _index.remove(e.getV0().index(), e.getV1().index(),
+                          e.getLabel());
+        }
     }
 
     /** Remove E from me, if present.  E must be between my vertices,
-     *  or the result is undefined.  */
+     *  or the result is undefined.  Takes constant time. */
     public void remove(Edge e) {
-        _edges.remove(e);
-        _out.get(e.getV0()).remove(e);
-        for (ArrayList<Edge> value : _out.values()) {
-            value.remove(e);
+        if (!isMine(e)) {
+            return;
         }
+        dropEdge(e);
+        removeSlot(_out, e.getV0(), e._slot0);
+        removeSlot(_in, e.getV1(), e._slot1);
     }
 
 
     /** Remove all edges from V1 to V2 from me, if present.  The result is
-     *  undefined if V1 and V2 are not among my vertices.  */
+     *  undefined if V1 and V2 are not among my vertices.  Takes time
+     *  proportional to the number of edges leaving V1. */
     public void remove(Vertex v1, Vertex v2) {
-        if (_vertices.contains(v1) && _vertices.contains(v2)) {
-            ArrayList<Edge> copy = new ArrayList<Edge>(_edges);
-            for (Edge e: copy) {
-                if (e.getV0().equals(v1) && e.getV1().equals(v2)) {
-                    _edges.remove(e);
+        if (isMine(v1) && isMine(v2)) {
+            ArrayList<Edge> doomed = new ArrayList<Edge>();
+            int i = v1.index();
+            for (int k = 0, n = _out.size(i); k < n; k += 1) {
+                Edge e = _out.get(i, k);
+                if (e.getV(v1) == v2) {
+                    doomed.add(e);
                 }
             }
-            copy = new ArrayList<Edge>(_out.get(v1));
-            for (Edge e: copy) {
-                if (e.getV(v1).equals(v2)) {
-                    _out.get(v1).remove(e);
-                }
+            for (Edge e : doomed) {
+                remove(e);
             }
         }
     }
@@ -274,24 +473,12 @@ public abstract class Graph<VLabel, ELabel> {
 
     /** Returns an iterator over all successors of V. */
     public Iteration<Vertex> successors(Vertex v) {
-        ArrayList<Vertex> ver = new ArrayList<Vertex>();
-        if (_out.get(v) != null) {
-            for (Edge e: _out.get(v)) {
-                ver.add(e.getV(v));
-            }
-        }
-        return Iteration.iteration(ver.iterator());
+        return new NeighborView(_out, v);
     }
 
     /** Returns an iterator over all predecessors of V. */
     public Iteration<Vertex> predecessors(Vertex v) {
-        ArrayList<Vertex> ver = new ArrayList<Vertex>();
-        if (_in.get(v) != null) {
-            for (Edge e: _in.get(v)) {
-                ver.add(e.getV(v));
-            }
-        }
-        return Iteration.iteration(ver.iterator());
+        return new NeighborView(_in, v);
     }
 
     /** Returns successors(V).  This is a synonym typically used on
@@ -307,20 +494,89 @@ public abstract class Graph<VLabel, ELabel> {
 
     /** Returns iterator over all outgoing edges from V. */
     public Iteration<Edge> outEdges(Vertex v) {
-        ArrayList<Edge> edg = new ArrayList<Edge>();
-        if (_out.get(v) != null) {
-            edg = new ArrayList<Edge>(_out.get(v));
-        }
-        return Iteration.iteration(edg.iterator());
+        return new EdgeView(_out, v);
     }
 
     /** Returns iterator over all incoming edges to V. */
     public Iteration<Edge> inEdges(Vertex v) {
-        ArrayList<Edge> edg = new ArrayList<Edge>();
-        if (_in.get(v) != null) {
-            edg = new ArrayList<Edge>(_in.get(v));
+        return new EdgeView(_in, v);
+    }
+
+    /** A read-only Iteration that reads the list for a vertex directly
+     *  from an Adjacency, rather than from a copy.  It throws
+     *  ConcurrentModificationException if my structure changes while it
+     *  is in use. */
+    private abstract class AdjacencyView<Type> extends Iteration<Type> {
+        /** An Iteration over the list for V in ADJ. */
+        AdjacencyView(Adjacency<Edge> adj, Vertex v) {
+            _adj = adj;
+            _v = v;
+            _k = 0;
+            _expectedModCount = _modCount;
+        }
+
+        @Override
+        public boolean hasNext() {
+            checkForModification();
+            return _k < _adj.size(_v.index());
+        }
+
+        @Override
+        public Type next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Edge e = _adj.get(_v.index(), _k);
+            _k += 1;
+            return deliver(e, _v);
+        }
+
+        /** Returns the item to be delivered for edge E of V. */
+        abstract Type deliver(Edge e, Vertex v);
+
+        /** Throw ConcurrentModificationException if my graph's structure
+         *  has changed since I was created. */
+        private void checkForModification() {
+            if (_modCount != _expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        /** The lists I read. */
+        private final Adjacency<Edge> _adj;
+        /** The vertex whose list I read. */
+        private final Vertex _v;
+        /** Position of the next item. */
+        private int _k;
+        /** The value of _modCount when I was created. */
+        private final int _expectedModCount;
+    }
+
+    /** A view of the edges of a vertex. */
+    private class EdgeView extends AdjacencyView<Edge> {
+        /** A view of the list of edges of V in ADJ. */
+        EdgeView(Adjacency<Edge> adj, Vertex v) {
+            super(adj, v);
+        }
+
+        @Override
+        Edge deliver(Edge e, Vertex v) {
+            return e;
+        }
+    }
+
+    /** A view of the vertices at the other ends of the edges of a
+     *  vertex. */
+    private class NeighborView extends AdjacencyView<Vertex> {
+        /** A view of the neighbors of V along its edges in ADJ. */
+        NeighborView(Adjacency<Edge> adj, Vertex v) {
+            super(adj, v);
+        }
+
+        @Override
+        Vertex deliver(Edge e, Vertex v) {
+            return e.getV(v);
         }
-        return Iteration.iteration(edg.iterator());
     }
 
     /** Returns outEdges(V). This is a synonym typically used
@@ -329,6 +585,79 @@ public abstract class Graph<VLabel, ELabel> {
         return outEdges(v);
     }
 
+    /** Replace my contents, which must be empty, with vertices labeled
+     *  VLABELS.get(0), VLABELS.get(1), ..., in that order, and with M edges,
+     *  the kth of which is labeled ELABELS.get(k) and runs from
+     *  vertex #FROM[k] to vertex #TO[k] of VLABELS.  Each adjacency list
+     *  and table is allocated at exactly its final size, and each vertex's
+     *  edges are listed in the same order as if they had been added one
+     *  at a time. */
+    void load(List<? extends VLabel> vlabels, int[] from, int[] to,
+              List<? extends ELabel> elabels, int m) {
+        int n = vlabels.size();
+        int base = vnumber;
+        _vertices = new ArrayList<Vertex>(n);
+        for (VLabel label : vlabels) {
+            Vertex v = new Vertex(label);
+            v._position = _vertices.size();
+            _vertices.add(v);
+        }
+
+        int[] outSizes = new int[vnumber];
+        int[] inSizes = isDirected() ? new int[vnumber] : outSizes;
+        for (int k = 0; k < m; k += 1) {
+            outSizes[base + from[k]] += 1;
+            inSizes[base + to[k]] += 1;
+        }
+        _out = new Adjacency<Edge>(outSizes);
+        _in = isDirected() ? new Adjacency<Edge>(inSizes) : _out;
+        if (_index != null) {
+            _index = new EdgeIndex(isDirected(), m);
+        }
+
+        _edges = new ArrayList<Edge>(m);
+        for (int k = 0; k < m; k += 1) {
+            Vertex v0 = _vertices.get(from[k]), v1 = _vertices.get(to[k]);
+            ELabel label = elabels.get(k);
+            Edge e = new Edge(v0, v1, label);
+            e._position = k;
+            e._slot0 = _out.add(v0.index(), e);
+            e._slot1 = _in.add(v1.index(), e);
+            _edges.add(e);
+            if (_index != null) {
+                _index.add(v0.index(), v1.index(), label);
+            }
+        }
+        _modCount += 1;
+    }
+
+    /** Keep a hashed index of my edges iff ON, so that both forms of
+     *  contains take expected constant time rather than time proportional
+     *  to the degree of their first argument.  The index costs some space
+     *  and a little time on each addition or removal of an edge.  It
+     *  requires that the equals and hashCode methods of my edge labels
+     *  not change while their edges are in me.  DirectedGraph and
+     *  UndirectedGraph keep an index by default. */
+    void setEdgeIndexing(boolean on) {
+        if (!on) {
+            _index = null;
+        } else if (_index == null) {
+            _index = new EdgeIndex(isDirected());
+            for (Edge e : _edges) {
+                _index.add(e.getV0().index(), e.getV1().index(),
+                           e.getLabel());
+            }
+        }
+    }
+
+    /** Returns an immutable snapshot of my current vertices and edges in
+     *  a compact array-based form that is faster to search and traverse.
+     *  The snapshot shares my Vertex and Edge objects, and is unaffected
+     *  by subsequent changes to me. */
+    public CompactGraph<VLabel, ELabel> freeze() {
+        return new CompactGraph<VLabel, ELabel>(this);
+    }
+
     /** Returns the natural ordering on T, as a Comparator.  For
      *  example, if intComp = Graph.<Integer>naturalOrder(), then
      *  intComp.compare(x1, y1) is <0 if x1<y1, ==0 if x1=y1, and >0
@@ -354,15 +683,25 @@ public abstract class Graph<VLabel, ELabel> {
                     return comparator.compare(v1.getLabel(), v2.getLabel());
                 }
             });
+        for (int k = 0; k < _edges.size(); k += 1) {
+            _edges.get(k)._position = k;
+        }
+        _modCount += 1;
     }
     /** Holds the vertices. */
     protected ArrayList<Vertex> _vertices;
     /** Holds the edges. */
     protected ArrayList<Edge> _edges;
-    /** Holds outedges. */
-    protected HashMap<Vertex, ArrayList<Edge>> _out;
-    /** Holds inedges. */
-    protected HashMap<Vertex, ArrayList<Edge>> _in;
+    /** Holds outedges, indexed by Vertex.index(). */
+    protected Adjacency<Edge> _out;
+    /** Holds inedges, indexed by Vertex.index().  The same as _out in an
+     *  undirected graph. */
+    protected Adjacency<Edge> _in;
+    /** Count of changes to my structure, for detecting use of stale
+     *  iterators. */
+    private int _modCount;
+    /** Index of my edges for contains, or null if not indexing. */
+    private EdgeIndex _index;
     /** Index number of vertices. */
     private int vnumber;
 }
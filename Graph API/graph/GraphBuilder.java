@@ -0,0 +1,167 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/** Accumulates the vertices and edges of a graph and then constructs it
+ *  in a single pass, with all of its internal storage allocated at its
+ *  final size.  This is considerably faster than adding a large number of
+ *  vertices and edges to a graph one at a time.
+ *
+ *  Vertices are identified by consecutive integer ids, starting from 0,
+ *  in the order in which they are given to the builder; edges likewise.
+ *  After a graph is built, vertex(ID) and edge(ID) return its vertices
+ *  and edges.  The vertices and edges of each vertex in the graph are
+ *  listed in id order, just as if they had been added one at a time.
+ *  For example,
+ *      GraphBuilder<String, Double> b = new GraphBuilder<>(2, 1);
+ *      int x = b.addVertex("x"), y = b.addVertex("y");
+ *      b.addEdge(x, y, 3.0);
+ *      UndirectedGraph<String, Double> G = b.buildUndirected();
+ *  @author Julian Wong
+ */
+public class GraphBuilder<VLabel, ELabel> {
+
+    /** A builder for graphs of about EXPECTEDVERTICES vertices and
+     *  EXPECTEDEDGES edges. */
+    public GraphBuilder(int expectedVertices, int expectedEdges) {
+        _vlabels = new ArrayList<VLabel>(Math.max(expectedVertices, 0));
+        _elabels = new ArrayList<ELabel>(Math.max(expectedEdges, 0));
+        _from = new int[Math.max(expectedEdges, 1)];
+        _to = new int[_from.length];
+    }
+
+    /** A builder for graphs of unknown size. */
+    public GraphBuilder() {
+        this(0, 0);
+    }
+
+    /** Returns the number of vertices I have been given. */
+    public int vertexSize() {
+        return _vlabels.size();
+    }
+
+    /** Returns the number of edges I have been given. */
+    public int edgeSize() {
+        return _elabels.size();
+    }
+
+    /** Add a vertex labeled LABEL and return its id. */
+    public int addVertex(VLabel label) {
+        _vlabels.add(label);
+        return _vlabels.size() - 1;
+    }
+
+    /** Add vertices labeled with the elements of LABELS, in order, and
+     *  return the id of the first of them.  Its successors have
+     *  consecutive ids. */
+    public int addVertices(Collection<? extends VLabel> labels) {
+        int first = _vlabels.size();
+        _vlabels.addAll(labels);
+        return first;
+    }
+
+    /** Returns the label of the vertex with id ID. */
+    public VLabel getLabel(int id) {
+        return _vlabels.get(id);
+    }
+
+    /** Add an edge labeled LABEL from the vertex with id FROM to the vertex
+     *  with id TO, and return its id.  Both vertices must already have
+     *  been added. */
+    public int addEdge(int from, int to, ELabel label) {
+        checkVertex(from);
+        checkVertex(to);
+        int m = _elabels.size();
+        if (m == _from.length) {
+            _from = Arrays.copyOf(_from, 2 * m);
+            _to = Arrays.copyOf(_to, 2 * m);
+        }
+        _from[m] = from;
+        _to[m] = to;
+        _elabels.add(label);
+        return m;
+    }
+
+    /** Add edges (FROM[k], TO[k]) labeled LABELS.get(k), for each k from
+     *  0 to LABELS.size()-1, and return the id of the first of them. */
+    public int addEdges(int[] from, int[] to, List<? extends ELabel> labels) {
+        int first = _elabels.size();
+        int n = labels.size();
+        if (first + n > _from.length) {
+            _from = Arrays.copyOf(_from, Math.max(first + n, 2 * first));
+            _to = Arrays.copyOf(_to, _from.length);
+        }
+        for (int k = 0; k < n; k += 1) {
+            checkVertex(from[k]);
+            checkVertex(to[k]);
+            _from[first + k] = from[k];
+            _to[first + k] = to[k];
+        }
+        _elabels.addAll(labels);
+        return first;
+    }
+
+    /** Returns a new directed graph containing my vertices and edges. */
+    public DirectedGraph<VLabel, ELabel> buildDirected() {
+        DirectedGraph<VLabel, ELabel> G = new DirectedGraph<VLabel, ELabel>();
+        build(G);
+        return G;
+    }
+
+    /** Returns a new undirected graph containing my vertices and edges. */
+    public UndirectedGraph<VLabel, ELabel> buildUndirected() {
+        UndirectedGraph<VLabel, ELabel> G =
+            new UndirectedGraph<VLabel, ELabel>();
+        build(G);
+        return G;
+    }
+
+    /** Returns the vertex with id ID in the graph I most recently built. */
+    @SuppressWarnings("unchecked")
+    public Graph<VLabel, ELabel>.Vertex vertex(int id) {
+        checkBuilt();
+        return (Graph<VLabel, ELabel>.Vertex) _vertices[id];
+    }
+
+    /** Returns the edge with id ID in the graph I most recently built. */
+    @SuppressWarnings("unchecked")
+    public Graph<VLabel, ELabel>.Edge edge(int id) {
+        checkBuilt();
+        return (Graph<VLabel, ELabel>.Edge) _edges[id];
+    }
+
+    /** Fill the empty graph G with my vertices and edges, and record
+     *  them for vertex and edge. */
+    private void build(Graph<VLabel, ELabel> G) {
+        G.load(_vlabels, _from, _to, _elabels, _elabels.size());
+        _vertices = G._vertices.toArray();
+        _edges = G._edges.toArray();
+    }
+
+    /** Check that I have built a graph. */
+    private void checkBuilt() {
+        if (_vertices == null) {
+            throw new IllegalStateException("no graph has been built");
+        }
+    }
+
+    /** Check that ID is the id of one of my vertices. */
+    private void checkVertex(int id) {
+        if (id < 0 || id >= _vlabels.size()) {
+            throw new IllegalArgumentException("no vertex with id " + id);
+        }
+    }
+
+    /** Labels of my vertices, by id. */
+    private final ArrayList<VLabel> _vlabels;
+    /** Labels of my edges, by id. */
+    private final ArrayList<ELabel> _elabels;
+    /** _from[k] and _to[k] are the ids of the ends of edge #k. */
+    private int[] _from, _to;
+    /** The vertices and edges of the graph I last built, by id, or null
+     *  if I have built none. */
+    private Object[] _vertices, _edges;
+}
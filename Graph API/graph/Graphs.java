@@ -1,9 +1,10 @@
 package graph;
 
 import java.util.List;
-import java.util.TreeSet;
-import java.util.Comparator;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /** Assorted graph algorithms.
  *  @author Julian Wong
@@ -36,64 +37,7 @@ public final class Graphs {
                  final Distancer<? super VLabel> h,
                  final Weighter<? super VLabel> vweighter,
                  final Weighting<? super ELabel> eweighter) {
-        TreeSet<LinkedList<Graph<VLabel, ELabel>.Edge>> open =
-            new TreeSet<LinkedList<Graph<VLabel, ELabel>.Edge>>
-            (new Comparator<LinkedList<Graph<VLabel, ELabel>.Edge>>() {
-                @Override
-                public int compare(LinkedList<Graph<VLabel, ELabel>.Edge> g1,
-                                   LinkedList<Graph<VLabel, ELabel>.Edge> g2) {
-                    Graph<VLabel, ELabel>.Edge e1, e2; e1 = g1.getLast();
-                    e2 = g2.getLast(); Graph<VLabel, ELabel>.Vertex v1, v2;
-                    v1 = vweighter.weight(e1.getV0().getLabel())
-                        > vweighter.weight(e1.getV1().getLabel()) ? e1.getV1()
-                        : e1.getV0();
-                    double value1 = vweighter.weight(v1.getLabel())
-                        + eweighter.weight(e1.getLabel())
-                        + h.dist(e1.getV(v1).getLabel(), V1.getLabel());
-                    v2 = vweighter.weight(e2.getV0().getLabel())
-                        > vweighter.weight(e2.getV1().getLabel()) ? e2.getV1()
-                        : e2.getV0();
-                    double value2 = vweighter.weight(v2.getLabel())
-                        + eweighter.weight(e2.getLabel())
-                        + h.dist(e2.getV(v2).getLabel(), V1.getLabel());
-                    return value1 > value2 ? 1 : value2 > value1 ? -1
-                        : v1.index() == v2.index() ? 0 : -1;
-                }
-            });
-        LinkedList<Graph<VLabel, ELabel>.Vertex> closed =
-            new LinkedList<Graph<VLabel, ELabel>.Vertex>();
-        LinkedList<Graph<VLabel, ELabel>.Edge> current =
-            new LinkedList<Graph<VLabel, ELabel>.Edge>();
-        Graph<VLabel, ELabel>.Vertex V = V0; double weight = 0;
-        while (true) {
-            if (vweighter.weight(V.getLabel()) == Double.POSITIVE_INFINITY) {
-                vweighter.setWeight(V.getLabel(), weight); closed.add(V);
-            }
-            if (V.equals(V1)) {
-                return current;
-            }
-            for (Graph<VLabel, ELabel>.Edge e: G.outEdges(V)) {
-                if (!closed.contains(e.getV(V))) {
-                    LinkedList<Graph<VLabel, ELabel>.Edge> copy =
-                        new LinkedList<Graph<VLabel, ELabel>.Edge>(current);
-                    copy.add(e); open.add(copy);
-                }
-            }
-            if (open.size() > 0) {
-                current = open.pollFirst();
-                if (vweighter.weight(current.getLast().getV0().getLabel())
-                    == Double.POSITIVE_INFINITY) {
-                    V = current.getLast().getV1();
-                } else {
-                    V = current.getLast().getV0();
-                }
-            } else {
-                return null;
-            }
-            weight = vweighter.weight(V.getLabel())
-                + eweighter.weight(current.getLast().getLabel());
-            V = current.getLast().getV(V);
-        }
+        return aStar(G, V0, V1, h, vweighter, eweighter);
     }
 
     /** Returns a path from V0 to V1 in G of minimum weight, according
@@ -124,66 +68,582 @@ public final class Graphs {
                  Graph<VLabel, ELabel>.Vertex V0,
                  final Graph<VLabel, ELabel>.Vertex V1,
                  final Distancer<? super VLabel> h) {
-        TreeSet<LinkedList<Graph<VLabel, ELabel>.Edge>> open =
-            new TreeSet<LinkedList<Graph<VLabel, ELabel>.Edge>>
-            (new Comparator<LinkedList<Graph<VLabel, ELabel>.Edge>>() {
-                @Override
-                public int compare(LinkedList<Graph<VLabel, ELabel>.Edge> g1,
-                                   LinkedList<Graph<VLabel, ELabel>.Edge> g2) {
-                    Graph<VLabel, ELabel>.Edge e1, e2; e1 = g1.getLast();
-                    e2 = g2.getLast(); Graph<VLabel, ELabel>.Vertex v1, v2;
-                    v1 = e1.getV0().getLabel().weight()
-                        > e1.getV1().getLabel().weight()
-                        ? e1.getV1() : e1.getV0();
-                    v2 = e2.getV0().getLabel().weight()
-                        > e2.getV1().getLabel().weight()
-                        ? e2.getV1() : e2.getV0();
-                    double value1 = v1.getLabel().weight()
-                        + e1.getLabel().weight()
-                        + h.dist(e1.getV(v1).getLabel(), V1.getLabel());
-                    double value2 = v2.getLabel().weight()
-                        + e2.getLabel().weight()
-                        + h.dist(e2.getV(v2).getLabel(), V1.getLabel());
-                    return value1 > value2 ? 1 : value2 > value1 ? -1
-                        : v1.index() == v2.index() ? 0 : -1;
+        return aStar(G, V0, V1, h,
+                     new Weighter<VLabel>() {
+                         @Override
+                         public double weight(VLabel x) {
+                             return x.weight();
+                         }
+
+                         @Override
+                         public void setWeight(VLabel x, double v) {
+                             x.setWeight(v);
+                         }
+                     },
+                     LABEL_WEIGHTING);
+    }
+
+    /** Returns a path from V0 to V1 in the graph searched by CONTEXT
+     *  of minimum weight, according to the edge weighter EWEIGHTER, or
+     *  null if V1 is unreachable from V0.  H must satisfy the same
+     *  conditions as for the 6-argument form of shortestPath.
+     *
+     *  Unlike that form, this one sets no vertex weights.  Instead, the
+     *  weights of minimal paths from V0 to V1 and to each vertex on the
+     *  returned path are left in CONTEXT, where CONTEXT.distance and
+     *  CONTEXT.writeWeight make them available, until the next search
+     *  using CONTEXT.  The cost of a search is independent of the number
+     *  of vertices in the graph that it never reaches. */
+    public static <VLabel, ELabel> List<Graph<VLabel, ELabel>.Edge>
+    shortestPath(SearchContext<VLabel, ELabel> context,
+                 Graph<VLabel, ELabel>.Vertex V0,
+                 Graph<VLabel, ELabel>.Vertex V1,
+                 Distancer<? super VLabel> h,
+                 Weighting<? super ELabel> eweighter) {
+        return aStar(context, V0, V1, h, null, eweighter);
+    }
+
+    /** Returns a path from V0 to V1 in the graph searched by CONTEXT
+     *  of minimum weight, according to the weights of its edge labels.
+     *  Otherwise the same as the 5-argument form of shortestPath that
+     *  takes a SearchContext. */
+    public static <VLabel, ELabel extends Weighted>
+    List<Graph<VLabel, ELabel>.Edge>
+    shortestPath(SearchContext<VLabel, ELabel> context,
+                 Graph<VLabel, ELabel>.Vertex V0,
+                 Graph<VLabel, ELabel>.Vertex V1,
+                 Distancer<? super VLabel> h) {
+        return aStar(context, V0, V1, h, null, LABEL_WEIGHTING);
+    }
+
+    /** Returns a path from V0 to V1 in the graph searched by CONTEXT
+     *  of minimum weight, according to the edge weighter EWEIGHTER, or
+     *  null if V1 is unreachable from V0, just as the corresponding
+     *  form of shortestPath does.  Assumes that H.dist(x, y) is at most
+     *  the weight of a minimal path from x to y for all vertices x and y
+     *  in G, and satisfies the triangle inequality (property b of the
+     *  6-argument shortestPath) in both of its arguments.
+     *
+     *  Searches forward from V0 and backward from V1 (along incoming
+     *  edges) at the same time, which on long routes typically settles
+     *  far fewer vertices than a one-sided search.  Afterwards, CONTEXT
+     *  holds the distances of V1 and of each vertex on the path, as
+     *  for shortestPath. */
+    public static <VLabel, ELabel> List<Graph<VLabel, ELabel>.Edge>
+    bidirectionalShortestPath(SearchContext<VLabel, ELabel> context,
+                              Graph<VLabel, ELabel>.Vertex V0,
+                              Graph<VLabel, ELabel>.Vertex V1,
+                              Distancer<? super VLabel> h,
+                              Weighting<? super ELabel> eweighter) {
+        return biAStar(context, V0, V1, h, eweighter);
+    }
+
+    /** Returns a path from V0 to V1 in the graph searched by CONTEXT
+     *  of minimum weight, according to the weights of its edge labels.
+     *  Otherwise the same as the 5-argument form of
+     *  bidirectionalShortestPath. */
+    public static <VLabel, ELabel extends Weighted>
+    List<Graph<VLabel, ELabel>.Edge>
+    bidirectionalShortestPath(SearchContext<VLabel, ELabel> context,
+                              Graph<VLabel, ELabel>.Vertex V0,
+                              Graph<VLabel, ELabel>.Vertex V1,
+                              Distancer<? super VLabel> h) {
+        return biAStar(context, V0, V1, h, LABEL_WEIGHTING);
+    }
+
+    /** The bidirectional A* search behind bidirectionalShortestPath,
+     *  with the same arguments and result.  Both halves use the average
+     *  potential p(v) = (H(v, V1) - H(V0, v)) / 2, the forward half
+     *  keying each vertex v by its distance from V0 plus p(v) and the
+     *  backward half by its distance to V1 minus p(v), so that the two
+     *  searches see the same consistent reduced edge weights.  MU, the
+     *  weight of the best path found through a vertex reached by both
+     *  halves, is then minimal as soon as the two smallest keys sum to at
+     *  least MU.  The second half of the best path is finally copied
+     *  into CONTEXT so that it holds the whole path. */
+    private static <VLabel, ELabel> List<Graph<VLabel, ELabel>.Edge>
+    biAStar(SearchContext<VLabel, ELabel> context,
+            Graph<VLabel, ELabel>.Vertex V0,
+            Graph<VLabel, ELabel>.Vertex V1,
+            Distancer<? super VLabel> h,
+            Weighting<? super ELabel> eweighter) {
+        Graph<VLabel, ELabel> G = context.graph();
+        SearchContext<VLabel, ELabel> back = context.reverse();
+        SearchStats stats = context.stats();
+        if (stats != null) {
+            h = stats.counting(h);
+            eweighter = stats.counting(eweighter);
+        }
+        context.start();
+        back.start();
+        int settled = 0, relaxed = 0;
+        IndexedHeap openF = context.open(), openB = back.open();
+        VLabel start = V0.getLabel(), goal = V1.getLabel();
+
+        context.reach(V0, 0.0, null);
+        back.reach(V1, 0.0, null);
+        openF.insert(V0.index(), potential(h, start, start, goal));
+        openB.insert(V1.index(), -potential(h, start, goal, goal));
+        double mu = V0 == V1 ? 0.0 : Double.POSITIVE_INFINITY;
+        Graph<VLabel, ELabel>.Vertex meet = V0 == V1 ? V0 : null;
+        while (!openF.isEmpty() && !openB.isEmpty()
+               && openF.minKey() + openB.minKey() < mu) {
+            boolean forward = openF.minKey() <= openB.minKey();
+            SearchContext<VLabel, ELabel> near = forward ? context : back;
+            SearchContext<VLabel, ELabel> far = forward ? back : context;
+            IndexedHeap open = near.open();
+            int u = open.poll();
+            Graph<VLabel, ELabel>.Vertex U = near.vertex(u);
+            double du = near.dist(u);
+            near.close(u);
+            int d = forward ? G.outDegree(U) : G.inDegree(U);
+            settled += 1;
+            relaxed += d;
+            for (int k = 0; k < d; k += 1) {
+                Graph<VLabel, ELabel>.Edge e =
+                    forward ? G.outEdge(U, k) : G.inEdge(U, k);
+                Graph<VLabel, ELabel>.Vertex W = e.getV(U);
+                int w = W.index();
+                double g = du + eweighter.weight(e.getLabel());
+                double dw = near.dist(w);
+                if (!near.closed(w) && g < dw) {
+                    double p = potential(h, start, W.getLabel(), goal);
+                    if (open.contains(w)) {
+                        open.decreaseKey(w, open.key(w) - dw + g);
+                    } else {
+                        open.insert(w, g + (forward ? p : -p));
+                    }
+                    near.reach(W, g, e);
+                    dw = g;
+                }
+                if (dw + far.dist(w) < mu) {
+                    mu = dw + far.dist(w);
+                    meet = W;
                 }
-            });
-        LinkedList<Graph<VLabel, ELabel>.Vertex> closed =
-            new LinkedList<Graph<VLabel, ELabel>.Vertex>();
-        LinkedList<Graph<VLabel, ELabel>.Edge> current =
-            new LinkedList<Graph<VLabel, ELabel>.Edge>();
-        Graph<VLabel, ELabel>.Vertex V = V0; double weight = 0;
+            }
+        }
+        if (meet == null) {
+            context.finish(settled, relaxed, back);
+            return null;
+        }
+        join(context, back, meet, mu);
+        context.finish(settled, relaxed, back);
+        return context.path(V1);
+    }
+
+    /** Returns the average potential (H(V, GOAL) - H(START, V)) / 2. */
+    private static <VLabel> double potential(Distancer<? super VLabel> h,
+                                             VLabel start, VLabel v,
+                                             VLabel goal) {
+        return (h.dist(v, goal) - h.dist(start, v)) / 2;
+    }
+
+    /** Extend the forward search recorded in CONTEXT with the backward
+     *  path recorded in BACK from MEET to the target, given that MU is
+     *  the weight of the combined path, and close every vertex on that
+     *  path in CONTEXT. */
+    private static <VLabel, ELabel> void
+    join(SearchContext<VLabel, ELabel> context,
+         SearchContext<VLabel, ELabel> back,
+         Graph<VLabel, ELabel>.Vertex meet, double mu) {
+        Graph<VLabel, ELabel>.Vertex V = meet;
         while (true) {
-            if (V.getLabel().weight() == Double.POSITIVE_INFINITY) {
-                V.getLabel().setWeight(weight); closed.add(V);
+            int v = V.index();
+            context.close(v);
+            Graph<VLabel, ELabel>.Edge e = context.parent(v);
+            if (e == null) {
+                break;
+            }
+            V = e.getV(V);
+        }
+        V = meet;
+        Graph<VLabel, ELabel>.Edge e;
+        while ((e = back.parent(V.index())) != null) {
+            Graph<VLabel, ELabel>.Vertex W = e.getV(V);
+            context.reach(W, mu - back.dist(W.index()), e);
+            context.close(W.index());
+            V = W;
+        }
+    }
+
+    /** The A* search shared by all forms of shortestPath, searching from
+     *  V0 to V1 in G with the distance measure H and edge weighting
+     *  EWEIGHTER, and using VWEIGHTER to set the weight of each vertex
+     *  whose distance it settles. */
+    private static <VLabel, ELabel> List<Graph<VLabel, ELabel>.Edge>
+    aStar(Graph<VLabel, ELabel> G,
+          Graph<VLabel, ELabel>.Vertex V0,
+          Graph<VLabel, ELabel>.Vertex V1,
+          Distancer<? super VLabel> h,
+          Weighter<? super VLabel> vweighter,
+          Weighting<? super ELabel> eweighter) {
+        return aStar(new SearchContext<VLabel, ELabel>(G), V0, V1, h,
+                     vweighter, eweighter);
+    }
+
+    /** The A* search shared by all forms of shortestPath, searching from
+     *  V0 to V1 in the graph of CONTEXT with the distance measure H and
+     *  edge weighting EWEIGHTER.  If VWEIGHTER is not null, uses it to set
+     *  the weight of each vertex whose distance the search settles.
+     *  Keeps the best known distance from V0 and the last edge of the best
+     *  known path for each vertex in CONTEXT, and the open set in an
+     *  IndexedHeap keyed by distance plus H, so that each vertex is on the
+     *  heap at most once.  The path is assembled only when V1 is reached. */
+    private static <VLabel, ELabel> List<Graph<VLabel, ELabel>.Edge>
+    aStar(SearchContext<VLabel, ELabel> context,
+          Graph<VLabel, ELabel>.Vertex V0,
+          Graph<VLabel, ELabel>.Vertex V1,
+          Distancer<? super VLabel> h,
+          Weighter<? super VLabel> vweighter,
+          Weighting<? super ELabel> eweighter) {
+        Graph<VLabel, ELabel> G = context.graph();
+        SearchStats stats = context.stats();
+        if (stats != null) {
+            h = stats.counting(h);
+            vweighter = stats.counting(vweighter);
+            eweighter = stats.counting(eweighter);
+        }
+        context.start();
+        IndexedHeap open = context.open();
+        VLabel goal = V1.getLabel();
+        int settled = 0, relaxed = 0;
+
+        context.reach(V0, 0.0, null);
+        open.insert(V0.index(), h.dist(V0.getLabel(), goal));
+        while (!open.isEmpty()) {
+            int u = open.poll();
+            Graph<VLabel, ELabel>.Vertex U = context.vertex(u);
+            double du = context.dist(u);
+            context.close(u);
+            if (vweighter != null) {
+                vweighter.setWeight(U.getLabel(), du);
+            }
+            settled += 1;
+            if (U == V1) {
+                context.finish(settled, relaxed, null);
+                return context.path(U);
+            }
+            int d = G.outDegree(U);
+            relaxed += d;
+            for (int k = 0; k < d; k += 1) {
+                Graph<VLabel, ELabel>.Edge e = G.outEdge(U, k);
+                Graph<VLabel, ELabel>.Vertex W = e.getV(U);
+                int w = W.index();
+                if (context.closed(w)) {
+                    continue;
+                }
+                double g = du + eweighter.weight(e.getLabel());
+                double dw = context.dist(w);
+                if (g < dw) {
+                    if (open.contains(w)) {
+                        open.decreaseKey(w, open.key(w) - dw + g);
+                    } else {
+                        open.insert(w, g + h.dist(W.getLabel(), goal));
+                    }
+                    context.reach(W, g, e);
+                }
+            }
+        }
+        context.finish(settled, relaxed, null);
+        return null;
+    }
+
+    /** Returns the weights of minimal paths from SOURCE to each of
+     *  TARGETS in the graph searched by CONTEXT, according to EWEIGHTER,
+     *  in the same order as TARGETS, with Double.POSITIVE_INFINITY for
+     *  unreachable targets.  Uses a single Dijkstra search from SOURCE
+     *  that stops as soon as every target is settled.  Afterwards,
+     *  CONTEXT.path gives a minimal path to each reachable target, and
+     *  CONTEXT.distance its weight. */
+    public static <VLabel, ELabel> double[]
+    distances(SearchContext<VLabel, ELabel> context,
+              Graph<VLabel, ELabel>.Vertex source,
+              List<? extends Graph<VLabel, ELabel>.Vertex> targets,
+              Weighting<? super ELabel> eweighter) {
+        Graph<VLabel, ELabel> G = context.graph();
+        SearchStats stats = context.stats();
+        if (stats != null) {
+            eweighter = stats.counting(eweighter);
+        }
+        context.start();
+        IndexedHeap open = context.open();
+        int remaining = 0, settled = 0, relaxed = 0;
+        for (Graph<VLabel, ELabel>.Vertex t : targets) {
+            if (context.addTarget(t.index())) {
+                remaining += 1;
             }
-            if (V.equals(V1)) {
-                return current;
+        }
+        context.reach(source, 0.0, null);
+        open.insert(source.index(), 0.0);
+        while (remaining > 0 && !open.isEmpty()) {
+            int u = open.poll();
+            Graph<VLabel, ELabel>.Vertex U = context.vertex(u);
+            double du = context.dist(u);
+            context.close(u);
+            if (context.isTarget(u)) {
+                remaining -= 1;
             }
-            for (Graph<VLabel, ELabel>.Edge e: G.outEdges(V)) {
-                if (!closed.contains(e.getV(V))) {
-                    LinkedList<Graph<VLabel, ELabel>.Edge> copy =
-                        new LinkedList<Graph<VLabel, ELabel>.Edge>(current);
-                    copy.add(e); open.add(copy);
+            int d = G.outDegree(U);
+            settled += 1;
+            relaxed += d;
+            for (int k = 0; k < d; k += 1) {
+                Graph<VLabel, ELabel>.Edge e = G.outEdge(U, k);
+                Graph<VLabel, ELabel>.Vertex W = e.getV(U);
+                int w = W.index();
+                double g = du + eweighter.weight(e.getLabel());
+                if (!context.closed(w) && g < context.dist(w)) {
+                    if (open.contains(w)) {
+                        open.decreaseKey(w, g);
+                    } else {
+                        open.insert(w, g);
+                    }
+                    context.reach(W, g, e);
                 }
             }
-            if (open.size() > 0) {
-                current = open.pollFirst();
-                if (current.getLast().getV0().getLabel().weight()
-                    == Double.POSITIVE_INFINITY) {
-                    V = current.getLast().getV1();
-                } else {
-                    V = current.getLast().getV0();
+        }
+        context.finish(settled, relaxed, null);
+        double[] result = new double[targets.size()];
+        for (int i = 0; i < result.length; i += 1) {
+            result[i] = context.distance(targets.get(i));
+        }
+        return result;
+    }
+
+    /** Returns the matrix of weights of minimal paths in G, according to
+     *  EWEIGHTER, from each of SOURCES (rows) to each of TARGETS
+     *  (columns), with Double.POSITIVE_INFINITY where there is no path.
+     *  Runs one search per source, as for the one-to-many distances,
+     *  spread over the tasks of POOL.  G must not change meanwhile. */
+    public static <VLabel, ELabel> double[][]
+    distanceMatrix(ForkJoinPool pool, Graph<VLabel, ELabel> G,
+                   List<? extends Graph<VLabel, ELabel>.Vertex> sources,
+                   List<? extends Graph<VLabel, ELabel>.Vertex> targets,
+                   Weighting<? super ELabel> eweighter) {
+        double[][] result = new double[sources.size()][];
+        int chunk = Math.max(1, sources.size()
+                             / (MATRIX_TASKS_PER_THREAD
+                                * pool.getParallelism()));
+        pool.invoke(new MatrixTask<VLabel, ELabel>(G, sources, targets,
+                                                   eweighter, result,
+                                                   0, sources.size(), chunk));
+        return result;
+    }
+
+    /** Returns distanceMatrix(POOL, G, SOURCES, TARGETS, EWEIGHTER), where
+     *  POOL is the common fork-join pool. */
+    public static <VLabel, ELabel> double[][]
+    distanceMatrix(Graph<VLabel, ELabel> G,
+                   List<? extends Graph<VLabel, ELabel>.Vertex> sources,
+                   List<? extends Graph<VLabel, ELabel>.Vertex> targets,
+                   Weighting<? super ELabel> eweighter) {
+        return distanceMatrix(ForkJoinPool.commonPool(), G, sources, targets,
+                              eweighter);
+    }
+
+    /** Number of tasks per worker thread into which distanceMatrix divides
+     *  its sources, so that threads finishing early find more work. */
+    private static final int MATRIX_TASKS_PER_THREAD = 4;
+
+    /** Fills rows of a distance matrix, splitting itself in half until
+     *  it has at most a given number of rows to fill, which it then
+     *  fills with searches sharing one SearchContext. */
+    private static class MatrixTask<VLabel, ELabel> extends RecursiveAction {
+        /** A task filling rows LO .. HI-1 of RESULT with the distances in
+         *  G from SOURCES[LO .. HI-1] to TARGETS according to EWEIGHTER,
+         *  splitting into subtasks of at most CHUNK rows. */
+        MatrixTask(Graph<VLabel, ELabel> G,
+                   List<? extends Graph<VLabel, ELabel>.Vertex> sources,
+                   List<? extends Graph<VLabel, ELabel>.Vertex> targets,
+                   Weighting<? super ELabel> eweighter, double[][] result,
+                   int lo, int hi, int chunk) {
+            _G = G;
+            _sources = sources;
+            _targets = targets;
+            _eweighter = eweighter;
+            _result = result;
+            _lo = lo;
+            _hi = hi;
+            _chunk = chunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (_hi - _lo <= _chunk) {
+                SearchContext<VLabel, ELabel> context =
+                    new SearchContext<VLabel, ELabel>(_G);
+                for (int i = _lo; i < _hi; i += 1) {
+                    _result[i] = distances(context, _sources.get(i),
+                                           _targets, _eweighter);
                 }
             } else {
-                return null;
+                int mid = (_lo + _hi) >>> 1;
+                invokeAll(new MatrixTask<VLabel, ELabel>(_G, _sources,
+                                                         _targets, _eweighter,
+                                                         _result, _lo, mid,
+                                                         _chunk),
+                          new MatrixTask<VLabel, ELabel>(_G, _sources,
+                                                         _targets, _eweighter,
+                                                         _result, mid, _hi,
+                                                         _chunk));
             }
-            weight = V.getLabel().weight()
-                + current.getLast().getLabel().weight();
-            V = current.getLast().getV(V);
         }
+
+        /** The graph searched. */
+        private final Graph<VLabel, ELabel> _G;
+        /** Sources and targets of the matrix. */
+        private final List<? extends Graph<VLabel, ELabel>.Vertex>
+            _sources, _targets;
+        /** The edge weighting. */
+        private final Weighting<? super ELabel> _eweighter;
+        /** The matrix filled. */
+        private final double[][] _result;
+        /** Range of rows filled, and the largest range filled directly. */
+        private final int _lo, _hi, _chunk;
     }
 
+    /** Returns the weights of minimal paths in G from SOURCE to each
+     *  vertex according to EWEIGHTER, indexed by Vertex.index(), with
+     *  Double.POSITIVE_INFINITY for unreachable vertices and unused
+     *  indices, computed by delta-stepping on the tasks of POOL.
+     *
+     *  Vertices are kept in buckets of width DELTA by tentative distance.
+     *  The lowest non-empty bucket is emptied in rounds, each of which
+     *  relaxes the light edges (weight at most DELTA) of all its vertices
+     *  in parallel, possibly refilling it; then the heavy edges of every
+     *  vertex removed from it are relaxed in parallel.  Distances are
+     *  lowered atomically, so the order in which tasks run does not
+     *  matter.  Weights must be non-negative, EWEIGHTER must be safe to
+     *  call from several threads, and G must not change meanwhile. */
+    public static <VLabel, ELabel> double[]
+    deltaStepping(ForkJoinPool pool, Graph<VLabel, ELabel> G,
+                  Graph<VLabel, ELabel>.Vertex source,
+                  Weighting<? super ELabel> eweighter, double delta) {
+        if (!(delta > 0)) {
+            throw new IllegalArgumentException("delta must be positive");
+        }
+        return new DeltaStepping<VLabel, ELabel>(pool, G, eweighter, delta)
+            .run(source);
+    }
+
+    /** Returns deltaStepping(POOL, G, SOURCE, EWEIGHTER, DELTA), where
+     *  POOL is the common fork-join pool and DELTA is the mean edge
+     *  weight. */
+    public static <VLabel, ELabel> double[]
+    deltaStepping(Graph<VLabel, ELabel> G,
+                  Graph<VLabel, ELabel>.Vertex source,
+                  Weighting<? super ELabel> eweighter) {
+        double total = 0.0;
+        for (Graph<VLabel, ELabel>.Edge e : G.edges()) {
+            total += eweighter.weight(e.getLabel());
+        }
+        double delta = G.edgeSize() == 0 || total == 0.0 ? 1.0
+            : total / G.edgeSize();
+        return deltaStepping(ForkJoinPool.commonPool(), G, source,
+                             eweighter, delta);
+    }
+
+    /** Returns the breadth-first levels (numbers of edges on shortest
+     *  paths) from SOURCE of the vertices of G, indexed by Vertex.index(),
+     *  with -1 for unreachable vertices and unused indices, computed on
+     *  the tasks of POOL.  If PARENTS is not null, it must have at least
+     *  G.indexBound() elements, and PARENTS[i] is set to the index of the
+     *  predecessor of the vertex with index i on some such path, or -1
+     *  for SOURCE, unreachable vertices, and unused indices.
+     *
+     *  Each level is found from the one before in one of two ways.
+     *  Top down, the edges leaving the frontier are followed in parallel.
+     *  Bottom up, each unreached vertex looks in parallel for an edge
+     *  entering it from the frontier, stopping at the first it finds,
+     *  which does far less work than top down once the frontier is a
+     *  large part of the graph.  The search switches to bottom up when
+     *  the edges leaving the frontier are more than a fixed fraction of
+     *  those leaving unreached vertices, and back when the frontier again
+     *  holds only a small fraction of the vertices.  G must not change
+     *  meanwhile. */
+    public static <VLabel, ELabel> int[]
+    breadthFirstLevels(ForkJoinPool pool, Graph<VLabel, ELabel> G,
+                       Graph<VLabel, ELabel>.Vertex source, int[] parents) {
+        if (parents != null && parents.length < G.indexBound()) {
+            throw new IllegalArgumentException("parents array too short");
+        }
+        return new ParallelBreadthFirst<VLabel, ELabel>(pool, G)
+            .run(source, parents);
+    }
+
+    /** Returns breadthFirstLevels(POOL, G, SOURCE, null), where POOL is
+     *  the common fork-join pool. */
+    public static <VLabel, ELabel> int[]
+    breadthFirstLevels(Graph<VLabel, ELabel> G,
+                       Graph<VLabel, ELabel>.Vertex source) {
+        return breadthFirstLevels(ForkJoinPool.commonPool(), G, source,
+                                  null);
+    }
+
+    /** Returns a tree of minimal paths in G from SOURCE according to
+     *  EWEIGHTER that can be kept up to date as edges of G are added,
+     *  removed, or reweighted, by reporting each change to the tree,
+     *  which then repairs only the part of itself that the change
+     *  affects. */
+    public static <VLabel, ELabel> ShortestPathTree<VLabel, ELabel>
+    shortestPathTree(Graph<VLabel, ELabel> G,
+                     Graph<VLabel, ELabel>.Vertex source,
+                     Weighting<? super ELabel> eweighter) {
+        return new ShortestPathTree<VLabel, ELabel>(G, source, eweighter);
+    }
+
+    /** Returns the weights of minimal paths in G from SOURCE to each
+     *  vertex (or, if REVERSE, from each vertex to SOURCE) according to
+     *  EWEIGHTER, indexed by Vertex.index().  Unreachable vertices and
+     *  unused indices get Double.POSITIVE_INFINITY.  Only reads G, so
+     *  several of these searches may run on one graph at once. */
+    @SuppressWarnings("unchecked")
+    static <VLabel, ELabel> double[]
+    distances(Graph<VLabel, ELabel> G, Graph<VLabel, ELabel>.Vertex source,
+              Weighting<? super ELabel> eweighter, boolean reverse) {
+        int n = G.indexBound();
+        double[] dist = new double[n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        Object[] vertices = new Object[n];
+        IndexedHeap open = new IndexedHeap(n);
+        dist[source.index()] = 0.0;
+        vertices[source.index()] = source;
+        open.insert(source.index(), 0.0);
+        while (!open.isEmpty()) {
+            int u = open.poll();
+            Graph<VLabel, ELabel>.Vertex U =
+                (Graph<VLabel, ELabel>.Vertex) vertices[u];
+            int d = reverse ? G.inDegree(U) : G.outDegree(U);
+            for (int k = 0; k < d; k += 1) {
+                Graph<VLabel, ELabel>.Edge e =
+                    reverse ? G.inEdge(U, k) : G.outEdge(U, k);
+                Graph<VLabel, ELabel>.Vertex W = e.getV(U);
+                int w = W.index();
+                double g = dist[u] + eweighter.weight(e.getLabel());
+                if (g < dist[w]) {
+                    if (open.contains(w)) {
+                        open.decreaseKey(w, g);
+                    } else if (vertices[w] == null) {
+                        vertices[w] = W;
+                        open.insert(w, g);
+                    } else {
+                        continue;
+                    }
+                    dist[w] = g;
+                }
+            }
+        }
+        return dist;
+    }
+
+    /** A Weighting that uses the weights of Weighted labels. */
+    private static final Weighting<Weighted> LABEL_WEIGHTING =
+        new Weighting<Weighted>() {
+            @Override
+            public double weight(Weighted x) {
+                return x.weight();
+            }
+        };
+
     /** Returns a distancer whose dist method always returns 0. */
     public static final Distancer<Object> ZERO_DISTANCER =
         new Distancer<Object>() {
@@ -0,0 +1,185 @@
+package graph;
+
+import java.util.Arrays;
+
+/** A binary min-heap of small non-negative integers (typically vertex
+ *  indices), each with a double key.  Unlike java.util.PriorityQueue,
+ *  it knows where each item lives, so that contains and decreaseKey take
+ *  constant and logarithmic time, respectively.  Each item may be in the
+ *  heap at most once.
+ *  @author Julian Wong
+ */
+class IndexedHeap {
+
+    /** An empty heap that can hold items in the range 0 .. CAPACITY-1. */
+    IndexedHeap(int capacity) {
+        _heap = new int[Math.max(capacity, 1)];
+        _keys = new double[_heap.length];
+        _pos = new int[_heap.length];
+        Arrays.fill(_pos, -1);
+        _size = 0;
+    }
+
+    /** Returns the number of items in me. */
+    int size() {
+        return _size;
+    }
+
+    /** Returns true iff I am empty. */
+    boolean isEmpty() {
+        return _size == 0;
+    }
+
+    /** Returns true iff ITEM is in me. */
+    boolean contains(int item) {
+        return item < _pos.length && _pos[item] >= 0;
+    }
+
+    /** Returns the key of ITEM, which must be in me. */
+    double key(int item) {
+        return _keys[item];
+    }
+
+    /** Add ITEM, which must not be in me, with key KEY. */
+    void insert(int item, double key) {
+        ensureCapacity(item + 1);
+        _keys[item] = key;
+        _heap[_size] = item;
+        _pos[item] = _size;
+        _size += 1;
+        _pushes += 1;
+        if (_size > _peak) {
+            _peak = _size;
+        }
+        siftUp(_size - 1);
+    }
+
+    /** Lower the key of ITEM, which must be in me, to KEY.  Does nothing
+     *  if KEY is not smaller than the current key. */
+    void decreaseKey(int item, double key) {
+        if (key < _keys[item]) {
+            _keys[item] = key;
+            siftUp(_pos[item]);
+        }
+    }
+
+    /** Change the key of ITEM, which must be in me, to KEY. */
+    void changeKey(int item, double key) {
+        double old = _keys[item];
+        _keys[item] = key;
+        if (key < old) {
+            siftUp(_pos[item]);
+        } else {
+            siftDown(_pos[item]);
+        }
+    }
+
+    /** Returns the key of my smallest item.  I must not be empty. */
+    double minKey() {
+        return _keys[_heap[0]];
+    }
+
+    /** Remove and return my item with the smallest key.  I must not be
+     *  empty. */
+    int poll() {
+        int result = _heap[0];
+        _size -= 1;
+        _pops += 1;
+        _pos[result] = -1;
+        if (_size > 0) {
+            int last = _heap[_size];
+            _heap[0] = last;
+            _pos[last] = 0;
+            siftDown(0);
+        }
+        return result;
+    }
+
+    /** Remove all my items and reset my counts of insertions, removals,
+     *  and largest size.  Takes time proportional to size(). */
+    void clear() {
+        for (int i = 0; i < _size; i += 1) {
+            _pos[_heap[i]] = -1;
+        }
+        _size = 0;
+        _pushes = _pops = _peak = 0;
+    }
+
+    /** Returns the number of items inserted since I was last cleared. */
+    int pushes() {
+        return _pushes;
+    }
+
+    /** Returns the number of items polled since I was last cleared. */
+    int pops() {
+        return _pops;
+    }
+
+    /** Returns my largest size since I was last cleared. */
+    int peak() {
+        return _peak;
+    }
+
+    /** Make sure I can hold items in the range 0 .. N-1. */
+    void ensureCapacity(int n) {
+        if (n > _pos.length) {
+            int len = Math.max(n, 2 * _pos.length);
+            int old = _pos.length;
+            _heap = Arrays.copyOf(_heap, len);
+            _keys = Arrays.copyOf(_keys, len);
+            _pos = Arrays.copyOf(_pos, len);
+            Arrays.fill(_pos, old, len, -1);
+        }
+    }
+
+    /** Move the item at heap position K up to its proper place. */
+    private void siftUp(int k) {
+        int item = _heap[k];
+        double key = _keys[item];
+        while (k > 0) {
+            int p = (k - 1) >>> 1;
+            int parent = _heap[p];
+            if (_keys[parent] <= key) {
+                break;
+            }
+            _heap[k] = parent;
+            _pos[parent] = k;
+            k = p;
+        }
+        _heap[k] = item;
+        _pos[item] = k;
+    }
+
+    /** Move the item at heap position K down to its proper place. */
+    private void siftDown(int k) {
+        int item = _heap[k];
+        double key = _keys[item];
+        int half = _size >>> 1;
+        while (k < half) {
+            int c = 2 * k + 1;
+            if (c + 1 < _size && _keys[_heap[c + 1]] < _keys[_heap[c]]) {
+                c += 1;
+            }
+            int child = _heap[c];
+            if (key <= _keys[child]) {
+                break;
+            }
+            _heap[k] = child;
+            _pos[child] = k;
+            k = c;
+        }
+        _heap[k] = item;
+        _pos[item] = k;
+    }
+
+    /** The heap-ordered items in positions 0 .. _size-1. */
+    private int[] _heap;
+    /** _keys[i] is the key of item i, if i is in me. */
+    private double[] _keys;
+    /** _pos[i] is the position of item i in _heap, or -1 if absent. */
+    private int[] _pos;
+    /** Number of items in me. */
+    private int _size;
+    /** Insertions, removals, and largest size since the last clear. */
+    private int _pushes, _pops, _peak;
+}
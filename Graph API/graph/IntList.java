@@ -0,0 +1,45 @@
+package graph;
+
+import java.util.Arrays;
+
+/** A growable list of ints, used by the parallel searches to collect
+ *  vertex indices without boxing them.
+ *  @author Julian Wong
+ */
+class IntList {
+
+    /** Returns the number of items in me. */
+    int size() {
+        return _size;
+    }
+
+    /** Returns item K. */
+    int get(int k) {
+        return _items[k];
+    }
+
+    /** Append X. */
+    void add(int x) {
+        if (_size == _items.length) {
+            _items = Arrays.copyOf(_items, 2 * _size);
+        }
+        _items[_size] = x;
+        _size += 1;
+    }
+
+    /** Append the items of L. */
+    void addAll(IntList l) {
+        if (_size + l._size > _items.length) {
+            _items = Arrays.copyOf(_items,
+                                   Math.max(_size + l._size,
+                                            2 * _items.length));
+        }
+        System.arraycopy(l._items, 0, _items, _size, l._size);
+        _size += l._size;
+    }
+
+    /** My items, in positions 0 .. _size-1. */
+    private int[] _items = new int[8];
+    /** Number of items. */
+    private int _size;
+}
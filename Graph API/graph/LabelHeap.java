@@ -0,0 +1,164 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/** A binary min-heap of the vertices of a graph, ordered by a Comparator
+ *  on their labels, with ties going to the vertex added first.  It knows
+ *  where each vertex lives (by Vertex.index()), so each vertex is in the
+ *  heap at most once, and adding a vertex that is already there instead
+ *  moves it toward the front, in case its label has changed to precede
+ *  its old one.
+ *  @author Julian Wong
+ */
+class LabelHeap<VLabel, ELabel> {
+
+    /** An empty heap ordered by ORDER. */
+    LabelHeap(Comparator<? super VLabel> order) {
+        _order = order;
+        _heap = new Object[INITIAL_SIZE];
+        _seqs = new long[INITIAL_SIZE];
+        _pos = new int[INITIAL_SIZE];
+        Arrays.fill(_pos, -1);
+    }
+
+    /** Returns true iff I am empty. */
+    boolean isEmpty() {
+        return _size == 0;
+    }
+
+    /** Returns the number of vertices in me. */
+    int size() {
+        return _size;
+    }
+
+    /** Returns true iff V is in me. */
+    boolean contains(Graph<VLabel, ELabel>.Vertex v) {
+        int i = v.index();
+        return i < _pos.length && _pos[i] >= 0 && _heap[_pos[i]] == v;
+    }
+
+    /** Add V, or if it is already present, move it forward as far as
+     *  its label now allows.  Takes O(lg size()) time. */
+    void add(Graph<VLabel, ELabel>.Vertex v) {
+        if (contains(v)) {
+            siftUp(_pos[v.index()]);
+            return;
+        }
+        if (_size == _heap.length) {
+            _heap = Arrays.copyOf(_heap, 2 * _size);
+            _seqs = Arrays.copyOf(_seqs, 2 * _size);
+        }
+        int i = v.index();
+        if (i >= _pos.length) {
+            int old = _pos.length;
+            _pos = Arrays.copyOf(_pos, Math.max(i + 1, 2 * old));
+            Arrays.fill(_pos, old, _pos.length, -1);
+        }
+        _heap[_size] = v;
+        _seqs[_size] = _nextSeq;
+        _nextSeq += 1;
+        _pos[i] = _size;
+        _size += 1;
+        siftUp(_size - 1);
+    }
+
+    /** Remove and return my first vertex.  I must not be empty. */
+    Graph<VLabel, ELabel>.Vertex poll() {
+        Graph<VLabel, ELabel>.Vertex result = at(0);
+        _size -= 1;
+        _pos[result.index()] = -1;
+        if (_size > 0) {
+            move(_size, 0);
+            siftDown(0);
+        }
+        _heap[_size] = null;
+        return result;
+    }
+
+    /** Remove all my vertices. */
+    void clear() {
+        for (int k = 0; k < _size; k += 1) {
+            _pos[at(k).index()] = -1;
+            _heap[k] = null;
+        }
+        _size = 0;
+    }
+
+    /** Returns the vertex at heap position K. */
+    @SuppressWarnings("unchecked")
+    private Graph<VLabel, ELabel>.Vertex at(int k) {
+        return (Graph<VLabel, ELabel>.Vertex) _heap[k];
+    }
+
+    /** Returns true iff the vertex at position J belongs before the one
+     *  at position K. */
+    private boolean before(int j, int k) {
+        int c = _order.compare(at(j).getLabel(), at(k).getLabel());
+        return c < 0 || (c == 0 && _seqs[j] < _seqs[k]);
+    }
+
+    /** Move the vertex at position FROM to position TO. */
+    private void move(int from, int to) {
+        _heap[to] = _heap[from];
+        _seqs[to] = _seqs[from];
+        _pos[at(to).index()] = to;
+    }
+
+    /** Exchange the vertices at positions J and K. */
+    private void swap(int j, int k) {
+        Object v = _heap[j];
+        long seq = _seqs[j];
+        move(k, j);
+        _heap[k] = v;
+        _seqs[k] = seq;
+        _pos[at(k).index()] = k;
+    }
+
+    /** Move the vertex at position K up to its proper place. */
+    private void siftUp(int k) {
+        while (k > 0) {
+            int parent = (k - 1) / 2;
+            if (!before(k, parent)) {
+                break;
+            }
+            swap(k, parent);
+            k = parent;
+        }
+    }
+
+    /** Move the vertex at position K down to its proper place. */
+    private void siftDown(int k) {
+        while (true) {
+            int child = 2 * k + 1;
+            if (child >= _size) {
+                break;
+            }
+            if (child + 1 < _size && before(child + 1, child)) {
+                child += 1;
+            }
+            if (!before(child, k)) {
+                break;
+            }
+            swap(k, child);
+            k = child;
+        }
+    }
+
+    /** Initial length of my arrays. */
+    private static final int INITIAL_SIZE = 16;
+
+    /** The ordering of labels. */
+    private final Comparator<? super VLabel> _order;
+    /** The heap-ordered vertices in positions 0 .. _size-1. */
+    private Object[] _heap;
+    /** _seqs[k] is the order in which _heap[k] was added, for breaking
+     *  ties. */
+    private long[] _seqs;
+    /** _pos[i] is the position of the vertex with index i, or -1. */
+    private int[] _pos;
+    /** Number of vertices in me. */
+    private int _size;
+    /** The sequence number of the next vertex added. */
+    private long _nextSeq;
+}
@@ -0,0 +1,272 @@
+package graph;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/** A Distancer for the vertex labels of a graph whose distances are lower
+ *  bounds derived from the triangle inequality and precomputed distances
+ *  to and from a few "landmark" vertices (the ALT technique).  If d is
+ *  the weight of a minimal path and L a landmark, then for vertices
+ *  a and b,
+ *        d(a, b) >= d(L, b) - d(L, a)   and   d(a, b) >= d(a, L) - d(b, L),
+ *  and dist(a, b) is the largest of these bounds over all landmarks.  It
+ *  satisfies both of the requirements that shortestPath places on its
+ *  distance measure, and where the graph has detours (rivers, mountains)
+ *  it is typically far tighter than a geometric bound.
+ *
+ *  The tables take one shortest-path search per landmark (two in a
+ *  directed graph) to build, so they are serializable, to be saved
+ *  with the map and reused.  Since the labels themselves need not be
+ *  serializable, the tables record vertices by their index() values,
+ *  and after being read back a LandmarkDistancer must be attached to a
+ *  graph constructed exactly as the original was before it is used.
+ *  Attaching checks a fingerprint of the graph and its weights, so that
+ *  tables made for a different graph (which would give bounds that are
+ *  not lower bounds, and so wrong routes) are rejected.
+ *  Labels must be distinct.
+ *  @author Julian Wong
+ */
+public class LandmarkDistancer<VLabel>
+    implements Distancer<VLabel>, Serializable {
+
+    /** A LandmarkDistancer for G, with edge weights given by EWEIGHTER,
+     *  that uses K landmarks chosen by farthest-point selection: each is
+     *  the vertex farthest from those already chosen.  To keep the serial
+     *  part of the work short, "farthest" is measured in edges, by
+     *  breadth-first searches, and the weighted searches for the tables
+     *  run in parallel once all landmarks are chosen. */
+    public <ELabel> LandmarkDistancer(Graph<VLabel, ELabel> G, int k,
+                                      Weighting<? super ELabel> eweighter) {
+        init(G, eweighter);
+        List<Graph<VLabel, ELabel>.Vertex> landmarks =
+            new ArrayList<Graph<VLabel, ELabel>.Vertex>();
+        Iteration<Graph<VLabel, ELabel>.Vertex> vertices = G.vertices();
+        if (k > 0 && vertices.hasNext()) {
+            int[] nearest = Graphs.breadthFirstLevels(G, vertices.next());
+            while (landmarks.size() < Math.min(k, G.vertexSize())) {
+                Graph<VLabel, ELabel>.Vertex L = farthest(G, nearest);
+                int[] levels = Graphs.breadthFirstLevels(G, L);
+                nearest = min(landmarks.isEmpty() ? null : nearest, levels);
+                landmarks.add(L);
+            }
+        }
+        tables(G, landmarks, eweighter);
+    }
+
+    /** A LandmarkDistancer for G, with edge weights given by EWEIGHTER,
+     *  that uses LANDMARKS, which must be vertices of G. */
+    public <ELabel> LandmarkDistancer(
+        Graph<VLabel, ELabel> G,
+        Collection<Graph<VLabel, ELabel>.Vertex> landmarks,
+        Weighting<? super ELabel> eweighter) {
+        init(G, eweighter);
+        tables(G, new ArrayList<Graph<VLabel, ELabel>.Vertex>(landmarks),
+               eweighter);
+    }
+
+    /** Prepare to use me on G, with edge weights given by EWEIGHTER, which
+     *  must have been constructed exactly as the graph I was built from
+     *  was, so that its vertices have the same index() values and labels
+     *  that are equal to the originals.  Needed only after I have been
+     *  deserialized.  Throws IllegalArgumentException if G or its
+     *  weights differ from the originals, as judged by a fingerprint of
+     *  the index and string form of the label of each vertex and the
+     *  endpoints and weight of each edge. */
+    public <ELabel> void attach(Graph<VLabel, ELabel> G,
+                                Weighting<? super ELabel> eweighter) {
+        if (G.indexBound() != _bound || G.edgeSize() != _edges
+            || G.isDirected() != _directed
+            || fingerprint(G, eweighter) != _fingerprint) {
+            throw new IllegalArgumentException("graph does not match"
+                                               + " landmark tables");
+        }
+        _index = new HashMap<VLabel, Integer>(2 * G.vertexSize());
+        for (Graph<VLabel, ELabel>.Vertex v : G.vertices()) {
+            _index.put(v.getLabel(), v.index());
+        }
+    }
+
+    /** Returns the number of landmarks I use. */
+    public int landmarks() {
+        return _from.length;
+    }
+
+    @Override
+    public double dist(VLabel v0, VLabel v1) {
+        if (_index == null) {
+            throw new IllegalStateException("landmark tables not attached"
+                                            + " to a graph");
+        }
+        int a = _index.get(v0), b = _index.get(v1);
+        double best = 0.0;
+        for (int i = 0; i < _from.length; i += 1) {
+            best = Math.max(best, bound(_from[i][b], _from[i][a]));
+            best = Math.max(best, bound(_to[i][a], _to[i][b]));
+        }
+        return best;
+    }
+
+    /** Returns X - Y, or 0 if either is infinite (so that nothing can be
+     *  concluded from them). */
+    private static double bound(double x, double y) {
+        if (x == Double.POSITIVE_INFINITY || y == Double.POSITIVE_INFINITY) {
+            return 0.0;
+        }
+        return x - y;
+    }
+
+    /** Record the shape of G, with edge weights given by EWEIGHTER, and
+     *  attach myself to it. */
+    private <ELabel> void init(Graph<VLabel, ELabel> G,
+                               Weighting<? super ELabel> eweighter) {
+        _bound = G.indexBound();
+        _edges = G.edgeSize();
+        _directed = G.isDirected();
+        _fingerprint = fingerprint(G, eweighter);
+        attach(G, eweighter);
+    }
+
+    /** Returns a hash of the vertices and edges of G, with edge weights
+     *  given by EWEIGHTER.  Each vertex contributes its index and the
+     *  string form of its label (which, unlike the hash codes of many
+     *  labels, is the same from one run to the next), and each edge its
+     *  endpoints' indices and its weight.  The contributions are mixed
+     *  and summed, so that the order of the edges does not matter. */
+    private static <VLabel, ELabel> long
+    fingerprint(Graph<VLabel, ELabel> G,
+                Weighting<? super ELabel> eweighter) {
+        long result = 0;
+        for (Graph<VLabel, ELabel>.Vertex v : G.vertices()) {
+            result += mix(mix(v.index())
+                          + String.valueOf(v.getLabel()).hashCode());
+        }
+        for (Graph<VLabel, ELabel>.Edge e : G.edges()) {
+            int u = e.getV0().index(), v = e.getV1().index();
+            if (!G.isDirected() && u > v) {
+                int t = u;
+                u = v;
+                v = t;
+            }
+            double w = eweighter.weight(e.getLabel());
+            result += mix(mix(mix(u) + v)
+                          + Double.doubleToLongBits(w));
+        }
+        return result;
+    }
+
+    /** Returns X with its bits thoroughly scrambled (the finalizer of
+     *  the SplitMix64 generator). */
+    private static long mix(long x) {
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+
+    /** Returns the vertex of G that is farthest from any landmark, given
+     *  that NEAREST holds the number of edges from the nearest landmark
+     *  to each vertex, or -1 if no landmark reaches it.  Vertices that no
+     *  landmark reaches count as farthest. */
+    private static <VLabel, ELabel> Graph<VLabel, ELabel>.Vertex
+    farthest(Graph<VLabel, ELabel> G, int[] nearest) {
+        Graph<VLabel, ELabel>.Vertex best = null;
+        long bestDist = -1;
+        for (Graph<VLabel, ELabel>.Vertex v : G.vertices()) {
+            int d = nearest[v.index()];
+            long dist = d < 0 ? Long.MAX_VALUE : d;
+            if (dist > bestDist) {
+                best = v;
+                bestDist = dist;
+            }
+        }
+        return best;
+    }
+
+    /** Returns the elementwise minimum of the levels A and B, in which -1
+     *  means unreached, stored in A, or a copy of B if A is null. */
+    private static int[] min(int[] a, int[] b) {
+        if (a == null) {
+            return b.clone();
+        }
+        for (int i = 0; i < a.length; i += 1) {
+            if (a[i] < 0 || (b[i] >= 0 && b[i] < a[i])) {
+                a[i] = b[i];
+            }
+        }
+        return a;
+    }
+
+    /** Fill in my tables for LANDMARKS in G.  The searches, one or two
+     *  per landmark, run in parallel. */
+    private <ELabel> void tables(
+        final Graph<VLabel, ELabel> G,
+        List<Graph<VLabel, ELabel>.Vertex> landmarks,
+        final Weighting<? super ELabel> eweighter) {
+        int k = landmarks.size();
+        _from = new double[k][];
+        _to = new double[k][];
+        List<Future<double[]>> fromRuns = new ArrayList<Future<double[]>>();
+        List<Future<double[]>> toRuns = new ArrayList<Future<double[]>>();
+        ExecutorService pool = Executors.newFixedThreadPool(
+            Math.max(1, Math.min(k, Runtime.getRuntime()
+                                 .availableProcessors())));
+        try {
+            for (final Graph<VLabel, ELabel>.Vertex L : landmarks) {
+                fromRuns.add(pool.submit(new Callable<double[]>() {
+                    @Override
+                    public double[] call() {
+                        return Graphs.distances(G, L, eweighter, false);
+                    }
+                }));
+                if (_directed) {
+                    toRuns.add(pool.submit(new Callable<double[]>() {
+                        @Override
+                        public double[] call() {
+                            return Graphs.distances(G, L, eweighter, true);
+                        }
+                    }));
+                }
+            }
+            for (int i = 0; i < k; i += 1) {
+                _from[i] = fromRuns.get(i).get();
+                _to[i] = _directed ? toRuns.get(i).get() : _from[i];
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("landmark computation"
+                                            + " interrupted");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("landmark computation failed",
+                                            e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** Serialization version. */
+    private static final long serialVersionUID = 2L;
+
+    /** The indexBound() of my graph. */
+    private int _bound;
+    /** The number of edges in my graph. */
+    private int _edges;
+    /** True iff my graph is directed. */
+    private boolean _directed;
+    /** The fingerprint of my graph and its weights. */
+    private long _fingerprint;
+    /** _from[i][v] is the weight of a minimal path from landmark #i to
+     *  the vertex with index v. */
+    private double[][] _from;
+    /** _to[i][v] is the weight of a minimal path to landmark #i from the
+     *  vertex with index v (the same as _from in undirected graphs). */
+    private double[][] _to;
+    /** Maps labels of my graph to the indices of their vertices. */
+    private transient HashMap<VLabel, Integer> _index;
+}
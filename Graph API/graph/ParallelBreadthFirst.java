@@ -0,0 +1,286 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** The state of one direction-optimizing breadth-first search, as
+ *  described for Graphs.breadthFirstLevels.  Visited vertices are kept
+ *  in a bitmap over Vertex.index().  A top-down step claims each newly
+ *  reached vertex by setting its bit with compare-and-set, so that
+ *  exactly one task records its level and parent, and collects the new
+ *  frontier as a list.  A bottom-up step gives each task a range of
+ *  whole bitmap words, so its vertices and their bits are its own, and
+ *  produces the new frontier as a bitmap.  Between steps, the frontier
+ *  is converted as needed by a single thread.
+ *  @author Julian Wong
+ */
+class ParallelBreadthFirst<VLabel, ELabel> {
+
+    /** A search of G whose tasks run on POOL. */
+    ParallelBreadthFirst(ForkJoinPool pool, Graph<VLabel, ELabel> G) {
+        _pool = pool;
+        _G = G;
+    }
+
+    /** Returns the levels of the vertices reached from SOURCE, indexed
+     *  by Vertex.index(), with -1 for other indices, and sets
+     *  PARENTS[i] to the index of the parent of the vertex with index i
+     *  (-1 for SOURCE and unreached indices) if PARENTS is not null. */
+    int[] run(Graph<VLabel, ELabel>.Vertex source, int[] parents) {
+        int n = _G.indexBound();
+        _byIndex = new Object[n];
+        long unexplored = 0;
+        for (Graph<VLabel, ELabel>.Vertex v : _G.vertices()) {
+            _byIndex[v.index()] = v;
+            unexplored += _G.outDegree(v);
+        }
+        _levels = new int[n];
+        Arrays.fill(_levels, -1);
+        _parents = parents == null ? new int[n] : parents;
+        Arrays.fill(_parents, 0, n, -1);
+        _words = (n + Long.SIZE - 1) / Long.SIZE;
+        _visited = new AtomicLongArray(_words);
+
+        int s = source.index();
+        _levels[s] = 0;
+        _visited.set(s / Long.SIZE, 1L << s);
+        IntList list = new IntList();
+        list.add(s);
+        long[] bitmap = null;
+        long frontierSize = 1, frontierEdges = _G.outDegree(source);
+        unexplored -= frontierEdges;
+        boolean bottomUp = false;
+        for (int level = 0; frontierSize > 0; level += 1) {
+            if (!bottomUp && frontierEdges > unexplored / ALPHA) {
+                bottomUp = true;
+                bitmap = toBitmap(list);
+            } else if (bottomUp && frontierSize < n / BETA) {
+                bottomUp = false;
+                list = toList(bitmap);
+            }
+            long[] counts;
+            if (bottomUp) {
+                long[] next = new long[_words];
+                counts = _pool.invoke(new BottomUp(bitmap, next, level,
+                                                   0, _words));
+                bitmap = next;
+            } else {
+                Step step = _pool.invoke(new TopDown(list, level, 0,
+                                                     list.size()));
+                list = step._frontier;
+                counts = step._counts;
+            }
+            frontierSize = counts[0];
+            frontierEdges = counts[1];
+            unexplored -= frontierEdges;
+        }
+        return _levels;
+    }
+
+    /** Returns a bitmap of the vertex indices in LIST. */
+    private long[] toBitmap(IntList list) {
+        long[] bitmap = new long[_words];
+        for (int k = 0; k < list.size(); k += 1) {
+            int v = list.get(k);
+            bitmap[v / Long.SIZE] |= 1L << v;
+        }
+        return bitmap;
+    }
+
+    /** Returns a list of the vertex indices in BITMAP. */
+    private IntList toList(long[] bitmap) {
+        IntList list = new IntList();
+        for (int w = 0; w < bitmap.length; w += 1) {
+            for (long bits = bitmap[w]; bits != 0; bits &= bits - 1) {
+                list.add(w * Long.SIZE + Long.numberOfTrailingZeros(bits));
+            }
+        }
+        return list;
+    }
+
+    /** Try to claim the vertex with index V for the current step,
+     *  returning true iff it was unvisited and this thread claimed it. */
+    private boolean claim(int v) {
+        int w = v / Long.SIZE;
+        long bit = 1L << v;
+        while (true) {
+            long bits = _visited.get(w);
+            if ((bits & bit) != 0) {
+                return false;
+            }
+            if (_visited.compareAndSet(w, bits, bits | bit)) {
+                return true;
+            }
+        }
+    }
+
+    /** Returns the vertex with index I. */
+    @SuppressWarnings("unchecked")
+    private Graph<VLabel, ELabel>.Vertex vertex(int i) {
+        return (Graph<VLabel, ELabel>.Vertex) _byIndex[i];
+    }
+
+    /** The result of a top-down step. */
+    private static class Step {
+        /** A step that found the vertices FRONTIER, with COUNTS[0] their
+         *  number and COUNTS[1] the number of edges leaving them. */
+        Step(IntList frontier, long[] counts) {
+            _frontier = frontier;
+            _counts = counts;
+        }
+
+        /** The new frontier. */
+        private final IntList _frontier;
+        /** The size of the new frontier and the edges leaving it. */
+        private final long[] _counts;
+    }
+
+    /** A task that expands part of a frontier list top-down. */
+    private class TopDown extends RecursiveTask<Step> {
+        /** Expand FRONTIER[LO .. HI-1], which are at level LEVEL. */
+        TopDown(IntList frontier, int level, int lo, int hi) {
+            _frontier = frontier;
+            _level = level;
+            _lo = lo;
+            _hi = hi;
+        }
+
+        @Override
+        protected Step compute() {
+            if (_hi - _lo > GRAIN) {
+                int mid = (_lo + _hi) >>> 1;
+                TopDown left = new TopDown(_frontier, _level, _lo, mid);
+                left.fork();
+                Step result =
+                    new TopDown(_frontier, _level, mid, _hi).compute();
+                Step other = left.join();
+                result._frontier.addAll(other._frontier);
+                result._counts[0] += other._counts[0];
+                result._counts[1] += other._counts[1];
+                return result;
+            }
+            IntList next = new IntList();
+            long edges = 0;
+            for (int k = _lo; k < _hi; k += 1) {
+                int u = _frontier.get(k);
+                Graph<VLabel, ELabel>.Vertex U = vertex(u);
+                for (int j = 0, d = _G.outDegree(U); j < d; j += 1) {
+                    Graph<VLabel, ELabel>.Vertex W =
+                        _G.outEdge(U, j).getV(U);
+                    int w = W.index();
+                    if (claim(w)) {
+                        _levels[w] = _level + 1;
+                        _parents[w] = u;
+                        next.add(w);
+                        edges += _G.outDegree(W);
+                    }
+                }
+            }
+            return new Step(next, new long[] { next.size(), edges });
+        }
+
+        /** The frontier. */
+        private final IntList _frontier;
+        /** The level of the frontier. */
+        private final int _level;
+        /** The range of _frontier I handle. */
+        private final int _lo, _hi;
+    }
+
+    /** A task that finds, bottom up, which unvisited vertices in part of
+     *  the index range have a parent in the frontier, and returns how
+     *  many it found and the number of edges leaving them. */
+    private class BottomUp extends RecursiveTask<long[]> {
+        /** Search for parents in FRONTIER, a bitmap of the vertices at
+         *  level LEVEL, for the unvisited vertices in words LO .. HI-1 of
+         *  the bitmaps, recording those found in NEXT. */
+        BottomUp(long[] frontier, long[] next, int level, int lo, int hi) {
+            _frontier = frontier;
+            _next = next;
+            _level = level;
+            _lo = lo;
+            _hi = hi;
+        }
+
+        @Override
+        protected long[] compute() {
+            if ((_hi - _lo) * Long.SIZE > GRAIN) {
+                int mid = (_lo + _hi) >>> 1;
+                BottomUp left =
+                    new BottomUp(_frontier, _next, _level, _lo, mid);
+                left.fork();
+                long[] result =
+                    new BottomUp(_frontier, _next, _level, mid, _hi)
+                    .compute();
+                long[] other = left.join();
+                result[0] += other[0];
+                result[1] += other[1];
+                return result;
+            }
+            long found = 0, edges = 0;
+            for (int w = _lo; w < _hi; w += 1) {
+                long visited = _visited.get(w), added = 0;
+                for (int b = 0; b < Long.SIZE; b += 1) {
+                    int v = w * Long.SIZE + b;
+                    if ((visited & (1L << b)) != 0 || v >= _byIndex.length
+                        || _byIndex[v] == null) {
+                        continue;
+                    }
+                    Graph<VLabel, ELabel>.Vertex V = vertex(v);
+                    for (int j = 0, d = _G.inDegree(V); j < d; j += 1) {
+                        int u = _G.inEdge(V, j).getV(V).index();
+                        if ((_frontier[u / Long.SIZE] & (1L << u)) != 0) {
+                            _levels[v] = _level + 1;
+                            _parents[v] = u;
+                            added |= 1L << b;
+                            found += 1;
+                            edges += _G.outDegree(V);
+                            break;
+                        }
+                    }
+                }
+                if (added != 0) {
+                    _next[w] = added;
+                    _visited.set(w, visited | added);
+                }
+            }
+            return new long[] { found, edges };
+        }
+
+        /** Bitmap of the frontier. */
+        private final long[] _frontier;
+        /** Bitmap of the next frontier. */
+        private final long[] _next;
+        /** The level of the frontier. */
+        private final int _level;
+        /** The range of bitmap words I handle. */
+        private final int _lo, _hi;
+    }
+
+    /** A top-down step is replaced by bottom-up steps once the edges
+     *  leaving the frontier exceed 1/ALPHA of the edges leaving
+     *  unvisited vertices. */
+    private static final int ALPHA = 14;
+    /** Bottom-up steps give way to top-down steps once the frontier holds
+     *  fewer than 1/BETA of the vertices. */
+    private static final int BETA = 24;
+    /** Largest number of vertices a task handles without splitting. */
+    private static final int GRAIN = 1024;
+
+    /** The pool that runs my tasks. */
+    private final ForkJoinPool _pool;
+    /** The graph searched. */
+    private final Graph<VLabel, ELabel> _G;
+    /** The vertices of _G, by index. */
+    private Object[] _byIndex;
+    /** The level of each vertex, or -1. */
+    private int[] _levels;
+    /** The index of the parent of each vertex, or -1. */
+    private int[] _parents;
+    /** Number of words in each bitmap. */
+    private int _words;
+    /** Bitmap of the vertices visited so far. */
+    private AtomicLongArray _visited;
+}
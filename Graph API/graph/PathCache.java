@@ -0,0 +1,186 @@
+package graph;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** A bounded cache of the results of shortest-path searches, for
+ *  workloads that ask for the same routes over and over.  Results are
+ *  keyed by graph, endpoints, distance measure, and edge weighting (all
+ *  compared by identity), and when the cache is full, the least recently
+ *  used result is discarded.  A result is never returned once vertices
+ *  or edges have been added to or removed from its graph since it was
+ *  computed; the search is simply done again.
+ *  Changes to the weights of existing edges cannot be detected; after
+ *  making such changes, call clear().
+ *
+ *  Paths are returned as unmodifiable lists.  A PathCache may be shared
+ *  among threads.  Searches for misses are done one at a time, except by
+ *  callers that supply their own SearchContexts, whose searches proceed
+ *  in parallel.
+ *  @author Julian Wong
+ */
+public class PathCache<VLabel, ELabel> {
+
+    /** An empty cache that holds at most CAPACITY results. */
+    public PathCache(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        _capacity = capacity;
+        _entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> e) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /** Returns a path from V0 to V1 in G of minimum weight according to
+     *  EWEIGHTER, found as by Graphs.shortestPath with distance measure H,
+     *  as an unmodifiable list, or null if V1 is unreachable from V0.
+     *  Sets no vertex weights. */
+    public synchronized List<Graph<VLabel, ELabel>.Edge>
+    shortestPath(Graph<VLabel, ELabel> G,
+                 Graph<VLabel, ELabel>.Vertex V0,
+                 Graph<VLabel, ELabel>.Vertex V1,
+                 Distancer<? super VLabel> h,
+                 Weighting<? super ELabel> eweighter) {
+        Key key = new Key(G, V0, V1, h, eweighter);
+        Entry entry = _entries.get(key);
+        if (entry != null && entry._modCount == G.modCount()) {
+            _hits += 1;
+            return entry._path;
+        }
+        _misses += 1;
+        if (_context == null || _context.graph() != G) {
+            _context = new SearchContext<VLabel, ELabel>(G);
+        }
+        List<Graph<VLabel, ELabel>.Edge> path =
+            Graphs.shortestPath(_context, V0, V1, h, eweighter);
+        if (path != null) {
+            path = Collections.unmodifiableList(path);
+        }
+        _entries.put(key, new Entry(path, G.modCount()));
+        return path;
+    }
+
+    /** Returns a path from V0 to V1 in CONTEXT.graph() of minimum weight
+     *  according to EWEIGHTER, found as by Graphs.shortestPath with
+     *  distance measure H, as an unmodifiable list, or null if V1 is
+     *  unreachable from V0.  A miss is searched for using CONTEXT, and
+     *  without holding my lock, so that threads with their own contexts
+     *  may search at the same time. */
+    public List<Graph<VLabel, ELabel>.Edge>
+    shortestPath(SearchContext<VLabel, ELabel> context,
+                 Graph<VLabel, ELabel>.Vertex V0,
+                 Graph<VLabel, ELabel>.Vertex V1,
+                 Distancer<? super VLabel> h,
+                 Weighting<? super ELabel> eweighter) {
+        Graph<VLabel, ELabel> G = context.graph();
+        Key key = new Key(G, V0, V1, h, eweighter);
+        int modCount = G.modCount();
+        synchronized (this) {
+            Entry entry = _entries.get(key);
+            if (entry != null && entry._modCount == modCount) {
+                _hits += 1;
+                return entry._path;
+            }
+            _misses += 1;
+        }
+        List<Graph<VLabel, ELabel>.Edge> path =
+            Graphs.shortestPath(context, V0, V1, h, eweighter);
+        if (path != null) {
+            path = Collections.unmodifiableList(path);
+        }
+        synchronized (this) {
+            _entries.put(key, new Entry(path, modCount));
+        }
+        return path;
+    }
+
+    /** Discard all results. */
+    public synchronized void clear() {
+        _entries.clear();
+        _context = null;
+    }
+
+    /** Returns the number of results I hold, including any that are no
+     *  longer valid but have not yet been discarded. */
+    public synchronized int size() {
+        return _entries.size();
+    }
+
+    /** Returns the maximum number of results I hold. */
+    public int capacity() {
+        return _capacity;
+    }
+
+    /** Returns the number of requests answered from the cache. */
+    public synchronized long hits() {
+        return _hits;
+    }
+
+    /** Returns the number of requests that required a search. */
+    public synchronized long misses() {
+        return _misses;
+    }
+
+    /** A search request. */
+    private static class Key {
+        /** A request for a path from V0 to V1 in G under H and W. */
+        Key(Object G, Object V0, Object V1, Object h, Object w) {
+            _graph = G;
+            _v0 = V0;
+            _v1 = V1;
+            _h = h;
+            _w = w;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) obj;
+            return _graph == k._graph && _v0 == k._v0 && _v1 == k._v1
+                && _h == k._h && _w == k._w;
+        }
+
+        @Override
+        public int hashCode() {
+            int r = System.identityHashCode(_graph);
+            r = 31 * r + System.identityHashCode(_v0);
+            r = 31 * r + System.identityHashCode(_v1);
+            r = 31 * r + System.identityHashCode(_h);
+            return 31 * r + System.identityHashCode(_w);
+        }
+
+        /** The components of the request. */
+        private final Object _graph, _v0, _v1, _h, _w;
+    }
+
+    /** A cached result. */
+    private class Entry {
+        /** A result PATH computed when the graph's modCount was MODCOUNT. */
+        Entry(List<Graph<VLabel, ELabel>.Edge> path, int modCount) {
+            _path = path;
+            _modCount = modCount;
+        }
+
+        /** The path found, or null. */
+        private final List<Graph<VLabel, ELabel>.Edge> _path;
+        /** The modCount of the graph when the path was found. */
+        private final int _modCount;
+    }
+
+    /** Maximum number of results. */
+    private final int _capacity;
+    /** Results, least recently used first. */
+    private final LinkedHashMap<Key, Entry> _entries;
+    /** Working storage for searches, or null. */
+    private SearchContext<VLabel, ELabel> _context;
+    /** Request counts. */
+    private long _hits, _misses;
+}
@@ -0,0 +1,235 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/** The working storage of shortest-path searches over one graph, kept
+ *  apart from the vertex labels so that a search need not write a
+ *  weight into every vertex it touches, and so that one context can be
+ *  reused for search after search.  Each search is given a new stamp,
+ *  and the distance recorded for a vertex counts only if it carries the
+ *  current stamp, so that forgetting the results of the last search
+ *  takes constant time rather than time proportional to the size of the
+ *  graph.  For example,
+ *      SearchContext<Location, Distance> search =
+ *          new SearchContext<Location, Distance>(G);
+ *      List<Graph<Location, Distance>.Edge> path =
+ *          Graphs.shortestPath(search, from, to, h);
+ *      double miles = search.distance(to);
+ *  A context may be used by only one thread at a time; concurrent
+ *  searches of the same graph each need their own.  The work done by
+ *  the searches using a context is totalled in the SearchStats attached
+ *  to it, if any.
+ *  @author Julian Wong
+ */
+public final class SearchContext<VLabel, ELabel> {
+
+    /** A context for searches of G. */
+    public SearchContext(Graph<VLabel, ELabel> G) {
+        _graph = G;
+        _open = new IndexedHeap(G.indexBound());
+        allocate(Math.max(G.indexBound(), 1));
+    }
+
+    /** Returns the graph I search. */
+    public Graph<VLabel, ELabel> graph() {
+        return _graph;
+    }
+
+    /** Returns the weight of a minimal path to V from the start of the
+     *  last search, if the last search established it, and
+     *  Double.POSITIVE_INFINITY otherwise.  A point-to-point search
+     *  establishes the distances of its target and of every vertex on
+     *  the returned path; a one-to-many search, those of all its
+     *  reachable targets. */
+    public double distance(Graph<VLabel, ELabel>.Vertex v) {
+        return closed(v.index()) ? _dist[v.index()]
+            : Double.POSITIVE_INFINITY;
+    }
+
+    /** Returns the minimal path to V found by the last search, as a list
+     *  of edges starting at the start of that search, or null if the
+     *  last search did not establish distance(V). */
+    public List<Graph<VLabel, ELabel>.Edge>
+    path(Graph<VLabel, ELabel>.Vertex v) {
+        if (!closed(v.index())) {
+            return null;
+        }
+        ArrayList<Graph<VLabel, ELabel>.Edge> path =
+            new ArrayList<Graph<VLabel, ELabel>.Edge>();
+        Graph<VLabel, ELabel>.Edge e;
+        while ((e = parent(v.index())) != null) {
+            path.add(e);
+            v = e.getV(v);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /** Use VWEIGHTER to set the weight of V to distance(V). */
+    public void writeWeight(Graph<VLabel, ELabel>.Vertex v,
+                            Weighter<? super VLabel> vweighter) {
+        vweighter.setWeight(v.getLabel(), distance(v));
+    }
+
+    /** Record the work done by my searches in STATS from now on, or
+     *  stop recording it if STATS is null. */
+    public void setStats(SearchStats stats) {
+        _stats = stats;
+    }
+
+    /** Returns the SearchStats in which my searches are recorded, or
+     *  null if none. */
+    public SearchStats stats() {
+        return _stats;
+    }
+
+    /** Returns a second context for searches of my graph, used by the
+     *  backward half of bidirectional searches. */
+    SearchContext<VLabel, ELabel> reverse() {
+        if (_reverse == null) {
+            _reverse = new SearchContext<VLabel, ELabel>(_graph);
+        }
+        return _reverse;
+    }
+
+    /** Forget the last search and prepare for a new one. */
+    void start() {
+        int n = _graph.indexBound();
+        if (n > _dist.length) {
+            allocate(Math.max(n, 2 * _dist.length));
+        }
+        _open.clear();
+        _open.ensureCapacity(n);
+        if (_epoch == Integer.MAX_VALUE) {
+            Arrays.fill(_reached, 0);
+            Arrays.fill(_closed, 0);
+            Arrays.fill(_targets, 0);
+            _epoch = 0;
+        }
+        _epoch += 1;
+        if (_stats != null) {
+            _startTime = System.nanoTime();
+        }
+    }
+
+    /** Record the search begun by the last start() in my SearchStats, if
+     *  any, given that it settled SETTLED vertices and examined RELAXED
+     *  edges, and that BACK, if not null, held its backward half. */
+    void finish(int settled, int relaxed,
+                SearchContext<VLabel, ELabel> back) {
+        if (_stats != null) {
+            int pushes = _open.pushes(), pops = _open.pops(),
+                peak = _open.peak();
+            if (back != null) {
+                pushes += back._open.pushes();
+                pops += back._open.pops();
+                peak += back._open.peak();
+            }
+            _stats.record(System.nanoTime() - _startTime, settled, relaxed,
+                          pushes, pops, peak);
+        }
+    }
+
+    /** Returns the best known distance to the vertex with index I in
+     *  the current search, or Double.POSITIVE_INFINITY if none. */
+    double dist(int i) {
+        return _reached[i] == _epoch ? _dist[i] : Double.POSITIVE_INFINITY;
+    }
+
+    /** Record that V is reached at distance D by way of the edge PARENT
+     *  (null for the start of the search). */
+    void reach(Graph<VLabel, ELabel>.Vertex v, double d,
+               Graph<VLabel, ELabel>.Edge parent) {
+        int i = v.index();
+        _reached[i] = _epoch;
+        _vertices[i] = v;
+        _dist[i] = d;
+        _parents[i] = parent;
+    }
+
+    /** Record the vertex with index I as a target of the current search,
+     *  returning false if it already was one. */
+    boolean addTarget(int i) {
+        if (_targets[i] == _epoch) {
+            return false;
+        }
+        _targets[i] = _epoch;
+        return true;
+    }
+
+    /** Returns true iff the vertex with index I is a target of the
+     *  current search. */
+    boolean isTarget(int i) {
+        return _targets[i] == _epoch;
+    }
+
+    /** Returns the vertex with index I, which must have been reached. */
+    @SuppressWarnings("unchecked")
+    Graph<VLabel, ELabel>.Vertex vertex(int i) {
+        return (Graph<VLabel, ELabel>.Vertex) _vertices[i];
+    }
+
+    /** Returns the edge by which the vertex with index I was reached, or
+     *  null if it was the start. */
+    @SuppressWarnings("unchecked")
+    Graph<VLabel, ELabel>.Edge parent(int i) {
+        return (Graph<VLabel, ELabel>.Edge) _parents[i];
+    }
+
+    /** Record that the distance to the vertex with index I is final. */
+    void close(int i) {
+        _closed[i] = _epoch;
+    }
+
+    /** Returns true iff the distance to the vertex with index I is final
+     *  in the current search. */
+    boolean closed(int i) {
+        return i < _closed.length && _closed[i] == _epoch;
+    }
+
+    /** Returns the open set of the current search. */
+    IndexedHeap open() {
+        return _open;
+    }
+
+    /** Replace my per-vertex arrays with fresh ones of length N. */
+    private void allocate(int n) {
+        _dist = new double[n];
+        _reached = new int[n];
+        _closed = new int[n];
+        _targets = new int[n];
+        _vertices = new Object[n];
+        _parents = new Object[n];
+        _epoch = 0;
+    }
+
+    /** The graph I search. */
+    private final Graph<VLabel, ELabel> _graph;
+    /** My reverse() context, or null if not yet needed. */
+    private SearchContext<VLabel, ELabel> _reverse;
+    /** The open set. */
+    private final IndexedHeap _open;
+    /** Where my searches are recorded, or null. */
+    private SearchStats _stats;
+    /** The value of System.nanoTime() when the current search began, if
+     *  it is being recorded. */
+    private long _startTime;
+    /** The stamp of the current search. */
+    private int _epoch;
+    /** For vertex index i, _dist[i], _vertices[i], and _parents[i] are
+     *  the best known distance, the vertex, and the last edge of the best
+     *  known path, provided that _reached[i] == _epoch. */
+    private double[] _dist;
+    /** Stamps of reached vertices. */
+    private int[] _reached;
+    /** _closed[i] == _epoch iff the distance to vertex i is final. */
+    private int[] _closed;
+    /** _targets[i] == _epoch iff vertex i is a target of a one-to-many
+     *  search. */
+    private int[] _targets;
+    /** Vertices and parent edges of reached vertices. */
+    private Object[] _vertices, _parents;
+}
@@ -0,0 +1,179 @@
+package graph;
+
+/** Totals describing the work done by shortest-path searches, for tuning
+ *  distance measures and capacities.  A SearchStats collects from the
+ *  searches done with any SearchContext it is attached to, e.g.,
+ *      SearchStats stats = new SearchStats();
+ *      search.setStats(stats);
+ *      ... Graphs.shortestPath(search, from, to, h) ...
+ *      System.err.print(stats);
+ *  Searches with no SearchStats attached pay only for a few counters
+ *  they keep anyway; they neither read the clock nor count the calls
+ *  of their distance measures and weightings.  Like a SearchContext, a
+ *  SearchStats may be used by only one thread at a time.  Threads that
+ *  search concurrently should each have their own, combined afterwards
+ *  with add.
+ *  @author Julian Wong
+ */
+public final class SearchStats {
+
+    /** Returns the number of searches recorded. */
+    public long queries() {
+        return _queries;
+    }
+
+    /** Returns the number of vertices whose distances were settled. */
+    public long settled() {
+        return _settled;
+    }
+
+    /** Returns the number of edges examined from settled vertices. */
+    public long relaxed() {
+        return _relaxed;
+    }
+
+    /** Returns the number of vertices added to open sets. */
+    public long pushes() {
+        return _pushes;
+    }
+
+    /** Returns the number of vertices removed from open sets. */
+    public long pops() {
+        return _pops;
+    }
+
+    /** Returns the largest size reached by the open set of any one
+     *  search (for bidirectional searches, the sum of the largest sizes
+     *  of both open sets). */
+    public int peakOpen() {
+        return _peakOpen;
+    }
+
+    /** Returns the number of calls of Distancer.dist. */
+    public long distancerCalls() {
+        return _distancerCalls;
+    }
+
+    /** Returns the number of calls of the methods of Weighters and
+     *  Weightings. */
+    public long weighterCalls() {
+        return _weighterCalls;
+    }
+
+    /** Returns the total time spent searching, in nanoseconds. */
+    public long nanos() {
+        return _nanos;
+    }
+
+    /** Add the totals in OTHER to mine. */
+    public void add(SearchStats other) {
+        _queries += other._queries;
+        _settled += other._settled;
+        _relaxed += other._relaxed;
+        _pushes += other._pushes;
+        _pops += other._pops;
+        _peakOpen = Math.max(_peakOpen, other._peakOpen);
+        _distancerCalls += other._distancerCalls;
+        _weighterCalls += other._weighterCalls;
+        _nanos += other._nanos;
+    }
+
+    /** Set all my totals to 0. */
+    public void reset() {
+        _queries = _settled = _relaxed = _pushes = _pops = 0;
+        _distancerCalls = _weighterCalls = _nanos = 0;
+        _peakOpen = 0;
+    }
+
+    @Override
+    public String toString() {
+        long q = Math.max(_queries, 1);
+        return String.format("queries:            %d%n"
+                             + "vertices settled:   %d (%.1f per query)%n"
+                             + "edges relaxed:      %d (%.1f per query)%n"
+                             + "heap pushes:        %d%n"
+                             + "heap pops:          %d%n"
+                             + "peak open set:      %d%n"
+                             + "distancer calls:    %d%n"
+                             + "weighter calls:     %d%n"
+                             + "search time:        %.3f ms"
+                             + " (%.3f ms per query)%n",
+                             _queries, _settled, (double) _settled / q,
+                             _relaxed, (double) _relaxed / q, _pushes, _pops,
+                             _peakOpen, _distancerCalls, _weighterCalls,
+                             _nanos / 1e6, _nanos / 1e6 / q);
+    }
+
+    /** Record one search that took NANOS nanoseconds, settled SETTLED
+     *  vertices, examined RELAXED edges, pushed and popped PUSHES and
+     *  POPS vertices on its open sets, and whose open sets grew to
+     *  PEAKOPEN vertices. */
+    void record(long nanos, int settled, int relaxed, int pushes, int pops,
+                int peakOpen) {
+        _queries += 1;
+        _nanos += nanos;
+        _settled += settled;
+        _relaxed += relaxed;
+        _pushes += pushes;
+        _pops += pops;
+        _peakOpen = Math.max(_peakOpen, peakOpen);
+    }
+
+    /** Returns a Distancer that behaves as H does and counts its calls
+     *  in me. */
+    <T> Distancer<T> counting(final Distancer<T> h) {
+        return new Distancer<T>() {
+            @Override
+            public double dist(T v0, T v1) {
+                _distancerCalls += 1;
+                return h.dist(v0, v1);
+            }
+        };
+    }
+
+    /** Returns a Weighting that behaves as W does and counts its calls
+     *  in me. */
+    <T> Weighting<T> counting(final Weighting<T> w) {
+        return new Weighting<T>() {
+            @Override
+            public double weight(T x) {
+                _weighterCalls += 1;
+                return w.weight(x);
+            }
+        };
+    }
+
+    /** Returns a Weighter that behaves as W does and counts its calls in
+     *  me, or null if W is null. */
+    <T> Weighter<T> counting(final Weighter<T> w) {
+        if (w == null) {
+            return null;
+        }
+        return new Weighter<T>() {
+            @Override
+            public double weight(T x) {
+                _weighterCalls += 1;
+                return w.weight(x);
+            }
+
+            @Override
+            public void setWeight(T x, double v) {
+                _weighterCalls += 1;
+                w.setWeight(x, v);
+            }
+        };
+    }
+
+    /** Number of searches. */
+    private long _queries;
+    /** Vertices settled and edges relaxed. */
+    private long _settled, _relaxed;
+    /** Open-set insertions and removals. */
+    private long _pushes, _pops;
+    /** Largest open set. */
+    private int _peakOpen;
+    /** Calls of distance measures and weightings. */
+    private long _distancerCalls, _weighterCalls;
+    /** Time spent searching, in nanoseconds. */
+    private long _nanos;
+}
@@ -0,0 +1,249 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/** A tree of minimal paths from one source vertex of a graph that can
+ *  be repaired incrementally as the graph changes, in the manner of
+ *  Ramalingam and Reps.  After an edge is added or its weight lowered,
+ *  only the vertices whose distances drop are searched again.  After an
+ *  edge of the tree is removed or its weight raised, only the subtree
+ *  below it is recomputed: its vertices are given the best distances
+ *  offered by edges from outside the subtree, and a search confined to
+ *  the vertices it improves finishes the job.  Changes to edges outside
+ *  the tree that do not shorten any path cost constant time.
+ *
+ *  The graph is changed by its owner, who must report each change here
+ *  (edgeAdded, edgeRemoved, weightChanged) before asking for distances.
+ *  Removing vertices is not reported directly; remove their edges first,
+ *  reporting each, or call rebuild().  Weights must be non-negative.
+ *  @author Julian Wong
+ */
+public class ShortestPathTree<VLabel, ELabel> {
+
+    /** A tree of minimal paths in G from SOURCE, with edge weights given
+     *  by EWEIGHTER. */
+    ShortestPathTree(Graph<VLabel, ELabel> G,
+                     Graph<VLabel, ELabel>.Vertex source,
+                     Weighting<? super ELabel> eweighter) {
+        _G = G;
+        _source = source;
+        _eweighter = eweighter;
+        rebuild();
+    }
+
+    /** Returns the graph I span. */
+    public Graph<VLabel, ELabel> graph() {
+        return _G;
+    }
+
+    /** Returns my source vertex. */
+    public Graph<VLabel, ELabel>.Vertex source() {
+        return _source;
+    }
+
+    /** Returns the weight of a minimal path from my source to V, or
+     *  Double.POSITIVE_INFINITY if there is none. */
+    public double distance(Graph<VLabel, ELabel>.Vertex v) {
+        int i = v.index();
+        return i < _dist.length && _vertices[i] == v
+            ? _dist[i] : Double.POSITIVE_INFINITY;
+    }
+
+    /** Returns the last edge of a minimal path from my source to V, or
+     *  null if V is my source or unreachable from it. */
+    @SuppressWarnings("unchecked")
+    public Graph<VLabel, ELabel>.Edge parentEdge(
+        Graph<VLabel, ELabel>.Vertex v) {
+        int i = v.index();
+        return i < _dist.length && _vertices[i] == v
+            ? (Graph<VLabel, ELabel>.Edge) _parents[i] : null;
+    }
+
+    /** Returns a minimal path from my source to V, or null if V is
+     *  unreachable from it.  The path to my source is empty. */
+    public List<Graph<VLabel, ELabel>.Edge> path(
+        Graph<VLabel, ELabel>.Vertex v) {
+        if (distance(v) == Double.POSITIVE_INFINITY) {
+            return null;
+        }
+        ArrayList<Graph<VLabel, ELabel>.Edge> result =
+            new ArrayList<Graph<VLabel, ELabel>.Edge>();
+        for (Graph<VLabel, ELabel>.Edge e = parentEdge(v); e != null;
+             e = parentEdge(v)) {
+            result.add(e);
+            v = e.getV(v);
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /** Recompute all distances from scratch. */
+    public void rebuild() {
+        int n = _G.indexBound();
+        _dist = new double[n];
+        Arrays.fill(_dist, Double.POSITIVE_INFINITY);
+        _parents = new Object[n];
+        _vertices = new Object[n];
+        _affected = new int[n];
+        _open = new IndexedHeap(n);
+        _epoch = 0;
+        lower(_source, 0.0, null);
+        propagate();
+    }
+
+    /** Update my distances after E has been added to my graph. */
+    public void edgeAdded(Graph<VLabel, ELabel>.Edge e) {
+        grow();
+        relax(e, e.getV0());
+        if (!_G.isDirected()) {
+            relax(e, e.getV1());
+        }
+        propagate();
+    }
+
+    /** Update my distances after E has been removed from my graph. */
+    public void edgeRemoved(Graph<VLabel, ELabel>.Edge e) {
+        Graph<VLabel, ELabel>.Vertex child = child(e);
+        if (child != null) {
+            repair(child);
+        }
+    }
+
+    /** Update my distances after the weight of E, which is in my graph,
+     *  has changed. */
+    public void weightChanged(Graph<VLabel, ELabel>.Edge e) {
+        Graph<VLabel, ELabel>.Vertex child = child(e);
+        if (child != null) {
+            repair(child);
+        } else {
+            edgeAdded(e);
+        }
+    }
+
+    /** Returns the vertex whose parent edge is E, or null if E is not in
+     *  my tree. */
+    private Graph<VLabel, ELabel>.Vertex child(Graph<VLabel, ELabel>.Edge e) {
+        if (parentEdge(e.getV1()) == e) {
+            return e.getV1();
+        } else if (!_G.isDirected() && parentEdge(e.getV0()) == e) {
+            return e.getV0();
+        }
+        return null;
+    }
+
+    /** Recompute the distances of the subtree rooted at ROOT, whose
+     *  parent edge has been removed or has changed weight. */
+    @SuppressWarnings("unchecked")
+    private void repair(Graph<VLabel, ELabel>.Vertex root) {
+        grow();
+        _epoch += 1;
+        ArrayList<Graph<VLabel, ELabel>.Vertex> subtree =
+            new ArrayList<Graph<VLabel, ELabel>.Vertex>();
+        subtree.add(root);
+        _affected[root.index()] = _epoch;
+        for (int i = 0; i < subtree.size(); i += 1) {
+            Graph<VLabel, ELabel>.Vertex x = subtree.get(i);
+            for (int k = 0, d = _G.outDegree(x); k < d; k += 1) {
+                Graph<VLabel, ELabel>.Edge f = _G.outEdge(x, k);
+                Graph<VLabel, ELabel>.Vertex w = f.getV(x);
+                if (_affected[w.index()] != _epoch && _parents[w.index()] == f
+                    && _vertices[w.index()] == w) {
+                    _affected[w.index()] = _epoch;
+                    subtree.add(w);
+                }
+            }
+        }
+        for (Graph<VLabel, ELabel>.Vertex a : subtree) {
+            _dist[a.index()] = Double.POSITIVE_INFINITY;
+            _parents[a.index()] = null;
+        }
+        for (Graph<VLabel, ELabel>.Vertex a : subtree) {
+            for (int k = 0, d = _G.inDegree(a); k < d; k += 1) {
+                Graph<VLabel, ELabel>.Edge f = _G.inEdge(a, k);
+                Graph<VLabel, ELabel>.Vertex x = f.getV(a);
+                if (_affected[x.index()] != _epoch) {
+                    relax(f, x);
+                }
+            }
+        }
+        propagate();
+    }
+
+    /** Lower the distance of the far end of E from U, if the path through
+     *  U is shorter. */
+    private void relax(Graph<VLabel, ELabel>.Edge e,
+                       Graph<VLabel, ELabel>.Vertex u) {
+        double g = distance(u) + _eweighter.weight(e.getLabel());
+        Graph<VLabel, ELabel>.Vertex w = e.getV(u);
+        if (g < distance(w)) {
+            lower(w, g, e);
+        }
+    }
+
+    /** Set the distance of V to D via PARENT, and schedule V to have its
+     *  edges relaxed. */
+    private void lower(Graph<VLabel, ELabel>.Vertex v, double d,
+                       Graph<VLabel, ELabel>.Edge parent) {
+        int i = v.index();
+        _vertices[i] = v;
+        _dist[i] = d;
+        _parents[i] = parent;
+        if (_open.contains(i)) {
+            _open.decreaseKey(i, d);
+        } else {
+            _open.insert(i, d);
+        }
+    }
+
+    /** Relax the edges of all scheduled vertices, in order of distance,
+     *  until no distance can be lowered. */
+    @SuppressWarnings("unchecked")
+    private void propagate() {
+        while (!_open.isEmpty()) {
+            Graph<VLabel, ELabel>.Vertex u =
+                (Graph<VLabel, ELabel>.Vertex) _vertices[_open.poll()];
+            for (int k = 0, d = _G.outDegree(u); k < d; k += 1) {
+                relax(_G.outEdge(u, k), u);
+            }
+        }
+    }
+
+    /** Make room for vertices added to my graph since my arrays were
+     *  allocated. */
+    private void grow() {
+        int n = _G.indexBound();
+        if (n > _dist.length) {
+            int old = _dist.length;
+            _dist = Arrays.copyOf(_dist, n);
+            Arrays.fill(_dist, old, n, Double.POSITIVE_INFINITY);
+            _parents = Arrays.copyOf(_parents, n);
+            _vertices = Arrays.copyOf(_vertices, n);
+            _affected = Arrays.copyOf(_affected, n);
+            _open.ensureCapacity(n);
+        }
+    }
+
+    /** The graph. */
+    private final Graph<VLabel, ELabel> _G;
+    /** The source vertex. */
+    private final Graph<VLabel, ELabel>.Vertex _source;
+    /** The edge weighting. */
+    private final Weighting<? super ELabel> _eweighter;
+    /** _dist[i] is the distance of _vertices[i] from _source. */
+    private double[] _dist;
+    /** _parents[i] is the parent edge of _vertices[i], or null. */
+    private Object[] _parents;
+    /** _vertices[i] is the vertex with index i that _dist[i] describes,
+     *  or null if no such vertex has been reached. */
+    private Object[] _vertices;
+    /** _affected[i] == _epoch iff _vertices[i] is in the subtree being
+     *  repaired. */
+    private int[] _affected;
+    /** The current repair. */
+    private int _epoch;
+    /** Vertices whose edges are to be relaxed, keyed by distance. */
+    private IndexedHeap _open;
+}
@@ -1,5 +1,11 @@
 package graph;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
 import org.junit.Test;
 import ucb.junit.textui;
 import static org.junit.Assert.*;
@@ -113,4 +119,1192 @@ public class Testing {
         assertEquals("Please have 2", 2, index);
     }
 
+    /** A Weighter that keeps vertex weights in a map. */
+    static class MapWeighter implements Weighter<String> {
+        @Override
+        public double weight(String x) {
+            Double w = weights.get(x);
+            return w == null ? Double.POSITIVE_INFINITY : w;
+        }
+
+        @Override
+        public void setWeight(String x, double v) {
+            weights.put(x, v);
+        }
+
+        /** The recorded weights. */
+        private HashMap<String, Double> weights =
+            new HashMap<String, Double>();
+    }
+
+    /** Edge weights taken from numeric edge labels. */
+    static final Weighting<String> PARSE_WEIGHT = new Weighting<String>() {
+        @Override
+        public double weight(String x) {
+            return Double.parseDouble(x);
+        }
+    };
+
+    /** Edge weights that are the (numeric) edge labels themselves. */
+    static final Weighting<Double> IDENTITY = new Weighting<Double>() {
+        @Override
+        public double weight(Double x) {
+            return x;
+        }
+    };
+
+    /** A graph built by randomGraph, with its vertices. */
+    static class RandomGraph {
+        /** The graph. */
+        final Graph<Integer, Double> graph;
+        /** The vertices of graph; the one at position i is labeled i. */
+        final List<Graph<Integer, Double>.Vertex> vertices =
+            new ArrayList<Graph<Integer, Double>.Vertex>();
+
+        /** A RandomGraph holding the empty graph G. */
+        RandomGraph(Graph<Integer, Double> g) {
+            graph = g;
+        }
+    }
+
+    /** Returns a random graph, directed iff DIRECTED, with N vertices
+     *  labeled 0 .. N-1 and M edges whose ends are chosen using RAND.  The
+     *  edges are labeled with weights in [1, 10). */
+    static RandomGraph randomGraph(boolean directed, int n, int m,
+                                   Random rand) {
+        RandomGraph result = new RandomGraph(directed
+            ? new DirectedGraph<Integer, Double>()
+            : new UndirectedGraph<Integer, Double>());
+        for (int i = 0; i < n; i += 1) {
+            result.vertices.add(result.graph.add(i));
+        }
+        for (int k = 0; k < m; k += 1) {
+            result.graph.add(result.vertices.get(rand.nextInt(n)),
+                             result.vertices.get(rand.nextInt(n)),
+                             1 + 9 * rand.nextDouble());
+        }
+        return result;
+    }
+
+    @Test
+    public void shortestPath() {
+        UndirectedGraph<String, String> g =
+            new UndirectedGraph<String, String>();
+        Graph<String, String>.Vertex a = g.add("a");
+        Graph<String, String>.Vertex b = g.add("b");
+        Graph<String, String>.Vertex c = g.add("c");
+        Graph<String, String>.Vertex d = g.add("d");
+        Graph<String, String>.Vertex e = g.add("e");
+        g.add(a, b, "4");
+        Graph<String, String>.Edge ac = g.add(c, a, "1");
+        Graph<String, String>.Edge cb = g.add(c, b, "1");
+        Graph<String, String>.Edge bd = g.add(b, d, "5");
+        g.add(a, d, "10");
+        MapWeighter w = new MapWeighter();
+        List<Graph<String, String>.Edge> path =
+            Graphs.shortestPath(g, a, d, Graphs.ZERO_DISTANCER,
+                                w, PARSE_WEIGHT);
+        assertEquals("Path length", 3, path.size());
+        assertSame("First edge", ac, path.get(0));
+        assertSame("Second edge", cb, path.get(1));
+        assertSame("Third edge", bd, path.get(2));
+        assertEquals("Weight of d", 7.0, w.weight("d"), 1e-9);
+        assertEquals("Weight of b", 2.0, w.weight("b"), 1e-9);
+        assertNull("Unreachable",
+                   Graphs.shortestPath(g, a, e, Graphs.ZERO_DISTANCER,
+                                       new MapWeighter(), PARSE_WEIGHT));
+    }
+
+    @Test
+    public void freeze() {
+        DirectedGraph<String, String> g = new DirectedGraph<String, String>();
+        Graph<String, String>.Vertex a = g.add("a");
+        Graph<String, String>.Vertex b = g.add("b");
+        Graph<String, String>.Vertex c = g.add("c");
+        g.add(a, b, "1");
+        g.add(a, c, "2");
+        g.add(c, b, "3");
+        CompactGraph<String, String> f = g.freeze();
+        assertEquals("Frozen vertices", 3, f.vertexSize());
+        assertEquals("Frozen edges", 3, f.edgeSize());
+        assertEquals("Out degree of a", 2, f.outDegree(a));
+        assertEquals("In degree of b", 2, f.inDegree(b));
+        assertTrue("Contains (c, b)", f.contains(c, b));
+        assertTrue("Contains (c, b):3", f.contains(c, b, "3"));
+        assertFalse("Contains (b, c)", f.contains(b, c));
+        int n = 0;
+        for (Graph<String, String>.Vertex v : f.predecessors(b)) {
+            assertTrue("Predecessor of b", v == a || v == c);
+            n += 1;
+        }
+        assertEquals("Predecessors of b", 2, n);
+        g.add(b, a, "4");
+        assertEquals("Snapshot unchanged", 3, f.edgeSize());
+        assertEquals("Path through snapshot", 1,
+                     Graphs.shortestPath(f, a, b, Graphs.ZERO_DISTANCER,
+                                         new MapWeighter(),
+                                         PARSE_WEIGHT).size());
+        try {
+            f.add("d");
+            fail("Frozen graph modified");
+        } catch (UnsupportedOperationException e) {
+            /* Expected. */
+        }
+        try {
+            f.removeAll(Arrays.asList(a, c));
+            fail("Frozen graph bulk-modified");
+        } catch (UnsupportedOperationException e) {
+            /* Expected. */
+        }
+        assertEquals("Vertices kept", 3, f.vertexSize());
+        assertEquals("Edges kept", 3, f.edgeSize());
+        assertTrue("Contains (a, c)", f.contains(a, c));
+    }
+
+    @Test
+    public void directedRemove() {
+        DirectedGraph<String, String> g = new DirectedGraph<String, String>();
+        Graph<String, String>.Vertex v1 = g.add("1");
+        Graph<String, String>.Vertex v2 = g.add("2");
+        Graph<String, String>.Vertex v3 = g.add("3");
+        g.add(v1, v2, "a");
+        g.add(v1, v2, "b");
+        g.add(v2, v1, "c");
+        g.add(v3, v2, "d");
+        g.add(v2, v3, "e");
+        g.remove(v1, v2);
+        assertEquals("Edges left", 3, g.edgeSize());
+        assertEquals("Out of 1", 0, g.outDegree(v1));
+        assertEquals("In of 1", 1, g.inDegree(v1));
+        assertEquals("In of 2", 1, g.inDegree(v2));
+        assertFalse("No (1, 2)", g.contains(v1, v2));
+        assertTrue("Still (2, 1)", g.contains(v2, v1, "c"));
+        g.remove(v2);
+        assertEquals("Vertices left", 2, g.vertexSize());
+        assertEquals("No edges left", 0, g.edgeSize());
+        assertEquals("In of 1 after", 0, g.inDegree(v1));
+        assertEquals("Out of 3 after", 0, g.outDegree(v3));
+        assertEquals("In of 3 after", 0, g.inDegree(v3));
+    }
+
+    @Test
+    public void removeAllVertices() {
+        UndirectedGraph<String, String> g =
+            new UndirectedGraph<String, String>();
+        Graph<String, String>.Vertex v1 = g.add("1");
+        Graph<String, String>.Vertex v2 = g.add("2");
+        Graph<String, String>.Vertex v3 = g.add("3");
+        Graph<String, String>.Vertex v4 = g.add("4");
+        g.add(v1, v2, "a");
+        g.add(v2, v3, "b");
+        g.add(v3, v3, "c");
+        g.add(v3, v4, "d");
+        g.add(v4, v1, "e");
+        g.removeAll(Arrays.asList(v2, v3));
+        assertEquals("Vertices left", 2, g.vertexSize());
+        assertEquals("Edges left", 1, g.edgeSize());
+        assertEquals("Degree of 1", 1, g.degree(v1));
+        assertEquals("Degree of 4", 1, g.degree(v4));
+        assertTrue("Still (1, 4)", g.contains(v1, v4, "e"));
+        g.remove(v4);
+        assertEquals("One vertex left", 1, g.vertexSize());
+        assertEquals("No edges left", 0, g.edgeSize());
+        assertEquals("Degree of 1 after", 0, g.degree(v1));
+        g.remove(v4);
+        assertEquals("Removing twice is harmless", 1, g.vertexSize());
+    }
+
+    @Test
+    public void removeEdgeSlots() {
+        UndirectedGraph<String, String> g =
+            new UndirectedGraph<String, String>();
+        Graph<String, String>.Vertex v1 = g.add("1");
+        Graph<String, String>.Vertex v2 = g.add("2");
+        Graph<String, String>.Edge loop = g.add(v1, v1, "a");
+        Graph<String, String>.Edge e12 = g.add(v1, v2, "b");
+        Graph<String, String>.Edge e21 = g.add(v2, v1, "c");
+        assertEquals("Self edge counted twice", 4, g.degree(v1));
+        g.remove(loop);
+        assertEquals("Degree of 1", 2, g.degree(v1));
+        g.remove(e12);
+        assertEquals("Degree of 1 after", 1, g.degree(v1));
+        assertEquals("Degree of 2 after", 1, g.degree(v2));
+        g.remove(e12);
+        assertEquals("Removing twice is harmless", 1, g.edgeSize());
+        for (Graph<String, String>.Edge e : g.edges(v2)) {
+            assertSame("Remaining edge", e21, e);
+        }
+        g.remove(e21);
+        assertEquals("No edges", 0, g.edgeSize());
+        assertEquals("Degree of 2 at end", 0, g.degree(v2));
+    }
+
+    @Test
+    public void edgeIndex() {
+        DirectedGraph<String, String> g = new DirectedGraph<String, String>();
+        Graph<String, String>.Vertex v1 = g.add("1");
+        Graph<String, String>.Vertex v2 = g.add("2");
+        Graph<String, String>.Edge a = g.add(v1, v2, "a");
+        g.add(v1, v2, "b");
+        g.add(v2, v2);
+        assertTrue("Has (1, 2)", g.contains(v1, v2));
+        assertFalse("Directed", g.contains(v2, v1));
+        assertTrue("Unlabeled edge", g.contains(v2, v2, null));
+        g.remove(a);
+        assertTrue("Still has (1, 2)", g.contains(v1, v2));
+        assertFalse("No (1, 2):a", g.contains(v1, v2, "a"));
+        g.setEdgeIndexing(false);
+        assertTrue("Unindexed (1, 2):b", g.contains(v1, v2, "b"));
+        g.setEdgeIndexing(true);
+        g.remove(v1);
+        assertFalse("No (1, 2) at all", g.contains(v1, v2));
+        assertTrue("Self edge", g.contains(v2, v2));
+        CompactGraph<String, String> f = g.freeze();
+        f.setEdgeIndexing(true);
+        assertTrue("Frozen unlabeled self edge", f.contains(v2, v2, null));
+
+        Random rand = new Random(29);
+        UndirectedGraph<Integer, Integer> indexed =
+            new UndirectedGraph<Integer, Integer>();
+        UndirectedGraph<Integer, Integer> plain =
+            new UndirectedGraph<Integer, Integer>();
+        plain.setEdgeIndexing(false);
+        List<Graph<Integer, Integer>.Vertex> iv =
+            new ArrayList<Graph<Integer, Integer>.Vertex>(),
+            pv = new ArrayList<Graph<Integer, Integer>.Vertex>();
+        List<Graph<Integer, Integer>.Edge> ie =
+            new ArrayList<Graph<Integer, Integer>.Edge>(),
+            pe = new ArrayList<Graph<Integer, Integer>.Edge>();
+        for (int i = 0; i < 30; i += 1) {
+            iv.add(indexed.add(i));
+            pv.add(plain.add(i));
+        }
+        for (int k = 0; k < 5000; k += 1) {
+            if (ie.isEmpty() || rand.nextInt(3) != 0) {
+                int u = rand.nextInt(30), v = rand.nextInt(30);
+                Integer label = rand.nextInt(5) == 0 ? null : rand.nextInt(4);
+                ie.add(indexed.add(iv.get(u), iv.get(v), label));
+                pe.add(plain.add(pv.get(u), pv.get(v), label));
+            } else {
+                int j = rand.nextInt(ie.size());
+                indexed.remove(ie.remove(j));
+                plain.remove(pe.remove(j));
+            }
+        }
+        for (int u = 0; u < 30; u += 1) {
+            for (int v = 0; v < 30; v += 1) {
+                assertEquals("Indexed pair",
+                             plain.contains(pv.get(u), pv.get(v)),
+                             indexed.contains(iv.get(u), iv.get(v)));
+                for (Integer label : new Integer[] { null, 0, 1, 2, 3 }) {
+                    assertEquals("Indexed labeled pair",
+                                 plain.contains(pv.get(u), pv.get(v), label),
+                                 indexed.contains(iv.get(u), iv.get(v),
+                                                  label));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void adjacencyViews() {
+        DirectedGraph<String, String> g = new DirectedGraph<String, String>();
+        Graph<String, String>.Vertex v1 = g.add("1");
+        Graph<String, String>.Vertex v2 = g.add("2");
+        g.add(v1, v2, "a");
+        g.add(v2, v1, "b");
+        Iteration<Graph<String, String>.Vertex> succ = g.successors(v1);
+        assertTrue("Has successor", succ.hasNext());
+        assertSame("Successor", v2, succ.next());
+        assertFalse("Only one successor", succ.hasNext());
+        Iteration<Graph<String, String>.Edge> in = g.inEdges(v1);
+        g.add(v2, v1, "c");
+        try {
+            in.hasNext();
+            fail("Stale view not detected");
+        } catch (java.util.ConcurrentModificationException e) {
+            /* Expected. */
+        }
+        int n = 0;
+        for (Graph<String, String>.Vertex v : g.predecessors(v1)) {
+            assertSame("Predecessor", v2, v);
+            n += 1;
+        }
+        assertEquals("Two predecessor edges", 2, n);
+    }
+
+    @Test
+    public void graphBuilder() {
+        GraphBuilder<String, String> b = new GraphBuilder<String, String>(3, 2);
+        int x = b.addVertex("x");
+        int y = b.addVertex("y");
+        int z = b.addVertex("z");
+        assertEquals("Vertex ids", 2, z);
+        b.addEdge(x, y, "xy");
+        b.addEdges(new int[] { y, x }, new int[] { z, y },
+                   Arrays.asList("yz", "xy2"));
+        assertEquals("Edge count", 3, b.edgeSize());
+        DirectedGraph<String, String> g = b.buildDirected();
+        assertEquals("Vertices", 3, g.vertexSize());
+        assertEquals("Edges", 3, g.edgeSize());
+        assertEquals("Label", "y", b.vertex(y).getLabel());
+        assertTrue("Has (x, y)", g.contains(b.vertex(x), b.vertex(y), "xy2"));
+        assertFalse("No (y, x)", g.contains(b.vertex(y), b.vertex(x)));
+        Iteration<Graph<String, String>.Edge> out = g.outEdges(b.vertex(x));
+        assertSame("First out edge", b.edge(0), out.next());
+        assertSame("Second out edge", b.edge(2), out.next());
+        assertEquals("In degree", 2, g.inDegree(b.vertex(y)));
+        g.add(b.vertex(z), b.vertex(x), "zx");
+        assertEquals("Grows after build", 3, g.outDegree(b.vertex(x))
+                     + g.outDegree(b.vertex(z)));
+        UndirectedGraph<String, String> u = b.buildUndirected();
+        assertEquals("Undirected degree", 2, u.degree(b.vertex(x)));
+        assertTrue("Undirected (z, y)", u.contains(b.vertex(z), b.vertex(y)));
+    }
+
+    /** A Traversal that records the labels of the vertices it visits. */
+    static class Recorder extends Traversal<String, String> {
+        @Override
+        protected void visit(Graph<String, String>.Vertex v) {
+            visited.add(v.getLabel());
+        }
+
+        /** Labels of visited vertices, in order. */
+        final List<String> visited = new ArrayList<String>();
+    }
+
+    @Test
+    public void traversalMarks() {
+        DirectedGraph<String, String> g = new DirectedGraph<String, String>();
+        Graph<String, String>.Vertex v1 = g.add("1");
+        Graph<String, String>.Vertex v2 = g.add("2");
+        Graph<String, String>.Vertex v3 = g.add("3");
+        g.add(v1, v2, "a");
+        g.add(v3, v2, "b");
+        Recorder r1 = new Recorder(), r2 = new Recorder();
+        r1.depthFirstTraverse(g, v1);
+        r2.depthFirstTraverse(g, v1);
+        assertEquals("First traversal", Arrays.asList("1", "2"), r1.visited);
+        assertEquals("Independent traversal", r1.visited, r2.visited);
+        r1.continueTraversing(v3);
+        assertEquals("Continued", Arrays.asList("1", "2", "3"), r1.visited);
+        r1.breadthFirstTraverse(g, v1);
+        assertEquals("Fresh traversal",
+                     Arrays.asList("1", "2", "3", "1", "2"), r1.visited);
+        assertFalse("Vertex marks untouched", v1.marked());
+    }
+
+    /** A Traversal that records the order of its visits and
+     *  postvisits. */
+    static class OrderRecorder extends Traversal<String, String> {
+        @Override
+        protected void visit(Graph<String, String>.Vertex v) {
+            visited.append(v.getLabel());
+        }
+
+        @Override
+        protected void postVisit(Graph<String, String>.Vertex v) {
+            postVisited.append(v.getLabel());
+        }
+
+        /** Labels of visited and postvisited vertices, in order. */
+        final StringBuilder visited = new StringBuilder(),
+            postVisited = new StringBuilder();
+    }
+
+    @Test
+    public void traversalOrder() {
+        DirectedGraph<String, String> g = new DirectedGraph<String, String>();
+        Graph<String, String>.Vertex v1 = g.add("1");
+        Graph<String, String>.Vertex v2 = g.add("2");
+        Graph<String, String>.Vertex v3 = g.add("3");
+        Graph<String, String>.Vertex v4 = g.add("4");
+        g.add(v1, v2, "a");
+        g.add(v1, v3, "b");
+        g.add(v2, v4, "c");
+        g.add(v3, v4, "d");
+        OrderRecorder dfs = new OrderRecorder(), bfs = new OrderRecorder();
+        dfs.depthFirstTraverse(g, v1);
+        assertEquals("DFS visits", "1342", dfs.visited.toString());
+        assertEquals("DFS postvisits", "4321", dfs.postVisited.toString());
+        bfs.breadthFirstTraverse(g, v1);
+        assertEquals("BFS visits", "1234", bfs.visited.toString());
+        assertEquals("BFS postvisits", "1243", bfs.postVisited.toString());
+
+        dfs = new OrderRecorder() {
+            @Override
+            protected void preVisit(Graph<String, String>.Edge e,
+                                    Graph<String, String>.Vertex v0) {
+                if (e.getLabel().equals("b")) {
+                    throw new RejectException();
+                }
+            }
+        };
+        dfs.depthFirstTraverse(g, v1);
+        assertEquals("Rejected DFS visits", "124", dfs.visited.toString());
+        assertEquals("Rejected DFS postvisits", "421",
+                     dfs.postVisited.toString());
+
+        int n = 200000;
+        Graph<String, String>.Vertex first = g.add("x"), last = first;
+        for (int i = 0; i < n; i += 1) {
+            Graph<String, String>.Vertex next = g.add("x");
+            g.add(last, next, "e");
+            g.add(first, next, "f");
+            last = next;
+        }
+        dfs = new OrderRecorder();
+        dfs.depthFirstTraverse(g, first);
+        assertEquals("Long DFS", n + 1, dfs.postVisited.length());
+        bfs = new OrderRecorder();
+        bfs.breadthFirstTraverse(g, first);
+        assertEquals("Long BFS", n + 1, bfs.postVisited.length());
+    }
+
+    @Test
+    public void searchContext() {
+        UndirectedGraph<String, String> g =
+            new UndirectedGraph<String, String>();
+        Graph<String, String>.Vertex a = g.add("a");
+        Graph<String, String>.Vertex b = g.add("b");
+        Graph<String, String>.Vertex c = g.add("c");
+        Graph<String, String>.Vertex d = g.add("d");
+        g.add(a, b, "4");
+        g.add(c, a, "1");
+        g.add(c, b, "1");
+        g.add(b, d, "5");
+        SearchContext<String, String> search =
+            new SearchContext<String, String>(g);
+        assertEquals("a to d", 3,
+                     Graphs.shortestPath(search, a, d, Graphs.ZERO_DISTANCER,
+                                         PARSE_WEIGHT).size());
+        assertEquals("Distance to d", 7.0, search.distance(d), 1e-9);
+        assertEquals("Distance to b", 2.0, search.distance(b), 1e-9);
+        MapWeighter w = new MapWeighter();
+        search.writeWeight(b, w);
+        assertEquals("Written weight", 2.0, w.weight("b"), 1e-9);
+        assertEquals("Nothing else written", Double.POSITIVE_INFINITY,
+                     w.weight("a"), 0.0);
+        assertEquals("d to c", 2,
+                     Graphs.shortestPath(search, d, c, Graphs.ZERO_DISTANCER,
+                                         PARSE_WEIGHT).size());
+        assertEquals("Distance to c", 6.0, search.distance(c), 1e-9);
+        assertEquals("Start", 0.0, search.distance(d), 0.0);
+        Graph<String, String>.Vertex e = g.add("e");
+        assertNull("Unreachable",
+                   Graphs.shortestPath(search, a, e, Graphs.ZERO_DISTANCER,
+                                       PARSE_WEIGHT));
+        assertEquals("No distance to e", Double.POSITIVE_INFINITY,
+                     search.distance(e), 0.0);
+    }
+
+    /** Returns the total weight of the edges in PATH according to W. */
+    static <E> double pathWeight(List<? extends Graph<?, E>.Edge> path,
+                                 Weighting<? super E> w) {
+        double sum = 0.0;
+        for (Graph<?, E>.Edge e : path) {
+            sum += w.weight(e.getLabel());
+        }
+        return sum;
+    }
+
+    @Test
+    public void bidirectionalShortestPath() {
+        final Random rand = new Random(42);
+        final double[] x = new double[200], y = new double[200];
+        /* Points lie in a 0.7 x 0.7 square, so no two are more than 1
+         * apart, and every edge weighs at least 1. */
+        for (int i = 0; i < x.length; i += 1) {
+            x[i] = 0.7 * rand.nextDouble();
+            y[i] = 0.7 * rand.nextDouble();
+        }
+        Distancer<Integer> euclid = new Distancer<Integer>() {
+            @Override
+            public double dist(Integer a, Integer b) {
+                return Math.hypot(x[a] - x[b], y[a] - y[b]);
+            }
+        };
+        for (int trial = 0; trial < 2; trial += 1) {
+            RandomGraph r = randomGraph(trial == 0, x.length, 4 * x.length,
+                                        rand);
+            Graph<Integer, Double> g = r.graph;
+            List<Graph<Integer, Double>.Vertex> vs = r.vertices;
+            SearchContext<Integer, Double> one =
+                new SearchContext<Integer, Double>(g);
+            SearchContext<Integer, Double> two =
+                new SearchContext<Integer, Double>(g);
+            for (int q = 0; q < 100; q += 1) {
+                Graph<Integer, Double>.Vertex s = vs.get(rand.nextInt(200));
+                Graph<Integer, Double>.Vertex t = vs.get(rand.nextInt(200));
+                List<Graph<Integer, Double>.Edge> p1 =
+                    Graphs.shortestPath(one, s, t, euclid, IDENTITY);
+                List<Graph<Integer, Double>.Edge> p2 =
+                    Graphs.bidirectionalShortestPath(two, s, t, euclid,
+                                                     IDENTITY);
+                if (p1 == null) {
+                    assertNull("Unreachable", p2);
+                    continue;
+                }
+                assertEquals("Path weight", pathWeight(p1, IDENTITY),
+                             pathWeight(p2, IDENTITY), 1e-9);
+                assertEquals("Distance", one.distance(t), two.distance(t),
+                             1e-9);
+                Graph<Integer, Double>.Vertex v = s;
+                for (Graph<Integer, Double>.Edge e : p2) {
+                    assertTrue("Connected path", trial == 1
+                               ? e.getV0() == v || e.getV1() == v
+                               : e.getV0() == v);
+                    v = e.getV(v);
+                }
+                assertSame("Path ends at target", t, v);
+            }
+        }
+    }
+
+    @Test
+    public void landmarkDistancer() throws Exception {
+        Random rand = new Random(7);
+        for (int trial = 0; trial < 2; trial += 1) {
+            RandomGraph r = randomGraph(trial == 0, 60, 180, rand);
+            Graph<Integer, Double> g = r.graph;
+            List<Graph<Integer, Double>.Vertex> vs = r.vertices;
+            LandmarkDistancer<Integer> h =
+                new LandmarkDistancer<Integer>(g, 4, IDENTITY);
+            assertEquals("Landmarks", 4, h.landmarks());
+            java.io.ByteArrayOutputStream bytes =
+                new java.io.ByteArrayOutputStream();
+            java.io.ObjectOutputStream out =
+                new java.io.ObjectOutputStream(bytes);
+            out.writeObject(h);
+            out.close();
+            @SuppressWarnings("unchecked")
+            LandmarkDistancer<Integer> copy = (LandmarkDistancer<Integer>)
+                new java.io.ObjectInputStream(
+                    new java.io.ByteArrayInputStream(bytes.toByteArray()))
+                .readObject();
+            copy.attach(g, IDENTITY);
+            Weighting<Double> doubled = new Weighting<Double>() {
+                @Override
+                public double weight(Double d) {
+                    return 2 * d;
+                }
+            };
+            try {
+                copy.attach(g, doubled);
+                fail("Attached with different weights");
+            } catch (IllegalArgumentException e) {
+                /* Expected. */
+            }
+            RandomGraph o = randomGraph(trial == 0, 60, 0, rand);
+            Graph<Integer, Double> other = o.graph;
+            List<Graph<Integer, Double>.Vertex> ovs = o.vertices;
+            boolean first = true;
+            for (Graph<Integer, Double>.Edge e : g.edges()) {
+                int u = e.getV0().getLabel(), v = e.getV1().getLabel();
+                other.add(ovs.get(first ? (u + 1) % 60 : u), ovs.get(v),
+                          e.getLabel());
+                first = false;
+            }
+            try {
+                copy.attach(other, IDENTITY);
+                fail("Attached to a different graph of the same size");
+            } catch (IllegalArgumentException e) {
+                /* Expected. */
+            }
+            copy.attach(g, IDENTITY);
+            SearchContext<Integer, Double> search =
+                new SearchContext<Integer, Double>(g);
+            for (Graph<Integer, Double>.Vertex s : vs) {
+                double[] d = Graphs.distances(g, s, IDENTITY, false);
+                for (Graph<Integer, Double>.Vertex t : vs) {
+                    double bound = h.dist(s.getLabel(), t.getLabel());
+                    assertTrue("Admissible", bound <= d[t.index()] + 1e-9);
+                    assertEquals("Deserialized", bound,
+                                 copy.dist(s.getLabel(), t.getLabel()), 0.0);
+                }
+                Graph<Integer, Double>.Vertex t = vs.get(rand.nextInt(60));
+                List<Graph<Integer, Double>.Edge> path =
+                    Graphs.shortestPath(search, s, t, copy, IDENTITY);
+                if (path == null) {
+                    assertEquals("Unreachable", Double.POSITIVE_INFINITY,
+                                 d[t.index()], 0.0);
+                } else {
+                    assertEquals("Path weight", d[t.index()],
+                                 pathWeight(path, IDENTITY), 1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void contractionHierarchy() {
+        Random rand = new Random(11);
+        for (int trial = 0; trial < 2; trial += 1) {
+            RandomGraph r = randomGraph(trial == 0, 150, 450, rand);
+            Graph<Integer, Double> g = r.graph;
+            List<Graph<Integer, Double>.Vertex> vs = r.vertices;
+            ContractionHierarchy<Integer, Double> ch =
+                new ContractionHierarchy<Integer, Double>(g, IDENTITY);
+            for (int q = 0; q < 40; q += 1) {
+                Graph<Integer, Double>.Vertex s = vs.get(rand.nextInt(150));
+                double[] d = Graphs.distances(g, s, IDENTITY, false);
+                for (Graph<Integer, Double>.Vertex t : vs) {
+                    List<Graph<Integer, Double>.Edge> path =
+                        ch.shortestPath(s, t);
+                    assertEquals("Distance", d[t.index()], ch.distance(s, t),
+                                 1e-9);
+                    if (path == null) {
+                        assertEquals("Unreachable", Double.POSITIVE_INFINITY,
+                                     d[t.index()], 0.0);
+                        continue;
+                    }
+                    assertEquals("Path weight", d[t.index()],
+                                 pathWeight(path, IDENTITY), 1e-9);
+                    Graph<Integer, Double>.Vertex v = s;
+                    for (Graph<Integer, Double>.Edge e : path) {
+                        assertTrue("Connected path", trial == 1
+                                   ? e.getV0() == v || e.getV1() == v
+                                   : e.getV0() == v);
+                        v = e.getV(v);
+                    }
+                    assertSame("Path ends at target", t, v);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void pathCache() {
+        DirectedGraph<String, String> g = new DirectedGraph<String, String>();
+        Graph<String, String>.Vertex a = g.add("a");
+        Graph<String, String>.Vertex b = g.add("b");
+        Graph<String, String>.Vertex c = g.add("c");
+        g.add(a, b, "5");
+        g.add(b, c, "1");
+        PathCache<String, String> cache = new PathCache<String, String>(2);
+        List<Graph<String, String>.Edge> p1 =
+            cache.shortestPath(g, a, c, Graphs.ZERO_DISTANCER, PARSE_WEIGHT);
+        assertEquals("Path a-b-c", 2, p1.size());
+        assertSame("Cached", p1,
+                   cache.shortestPath(g, a, c, Graphs.ZERO_DISTANCER,
+                                      PARSE_WEIGHT));
+        assertEquals("Hits", 1, cache.hits());
+        assertEquals("Misses", 1, cache.misses());
+        Graph<String, String>.Edge ac = g.add(a, c, "2");
+        List<Graph<String, String>.Edge> p2 =
+            cache.shortestPath(g, a, c, Graphs.ZERO_DISTANCER, PARSE_WEIGHT);
+        assertEquals("Invalidated by add", Arrays.asList(ac), p2);
+        g.remove(ac);
+        assertEquals("Invalidated by remove", 2,
+                     cache.shortestPath(g, a, c, Graphs.ZERO_DISTANCER,
+                                        PARSE_WEIGHT).size());
+        assertNull("Unreachable",
+                   cache.shortestPath(g, c, a, Graphs.ZERO_DISTANCER,
+                                      PARSE_WEIGHT));
+        cache.shortestPath(g, b, c, Graphs.ZERO_DISTANCER, PARSE_WEIGHT);
+        assertEquals("Bounded", 2, cache.size());
+        assertEquals("Misses", 5, cache.misses());
+        cache.shortestPath(g, a, c, Graphs.ZERO_DISTANCER, PARSE_WEIGHT);
+        assertEquals("Evicted", 6, cache.misses());
+        try {
+            p1.clear();
+            fail("Cached path modifiable");
+        } catch (UnsupportedOperationException e) {
+            /* Expected. */
+        }
+    }
+
+    @Test
+    public void oneToManyDistances() {
+        Random rand = new Random(3);
+        RandomGraph r = randomGraph(true, 80, 240, rand);
+        Graph<Integer, Double> g = r.graph;
+        List<Graph<Integer, Double>.Vertex> vs = r.vertices;
+        List<Graph<Integer, Double>.Vertex> targets = vs.subList(10, 30);
+        SearchContext<Integer, Double> search =
+            new SearchContext<Integer, Double>(g);
+        double[][] matrix =
+            Graphs.distanceMatrix(g, vs.subList(0, 40), targets, IDENTITY);
+        for (int s = 0; s < 40; s += 1) {
+            double[] all = Graphs.distances(g, vs.get(s), IDENTITY, false);
+            double[] some =
+                Graphs.distances(search, vs.get(s), targets, IDENTITY);
+            for (int t = 0; t < targets.size(); t += 1) {
+                double d = all[targets.get(t).index()];
+                assertEquals("One to many", d, some[t], 1e-9);
+                assertEquals("Matrix", d, matrix[s][t], 1e-9);
+                List<Graph<Integer, Double>.Edge> path =
+                    search.path(targets.get(t));
+                if (d == Double.POSITIVE_INFINITY) {
+                    assertNull("No path", path);
+                } else {
+                    assertEquals("Path weight", d,
+                                 pathWeight(path, IDENTITY), 1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void deltaStepping() {
+        Random rand = new Random(5);
+        for (int trial = 0; trial < 2; trial += 1) {
+            RandomGraph r = randomGraph(trial == 0, 2000, 6000, rand);
+            Graph<Integer, Double> g = r.graph;
+            List<Graph<Integer, Double>.Vertex> vs = r.vertices;
+            g.remove(vs.get(7));
+            for (double delta : new double[] { 0.5, 5.0, 50.0 }) {
+                double[] expected =
+                    Graphs.distances(g, vs.get(0), IDENTITY, false);
+                double[] actual =
+                    Graphs.deltaStepping(new java.util.concurrent
+                                         .ForkJoinPool(4), g, vs.get(0),
+                                         IDENTITY, delta);
+                assertEquals("Length", expected.length, actual.length);
+                for (int i = 0; i < expected.length; i += 1) {
+                    assertEquals("Distance", expected[i], actual[i], 1e-9);
+                }
+            }
+            double[] expected =
+                Graphs.distances(g, vs.get(1), IDENTITY, false);
+            double[] actual = Graphs.deltaStepping(g, vs.get(1), IDENTITY);
+            for (int i = 0; i < expected.length; i += 1) {
+                assertEquals("Default delta", expected[i], actual[i], 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void shortestPathTree() {
+        Random rand = new Random(11);
+        final HashMap<Double, Double> changed = new HashMap<Double, Double>();
+        Weighting<Double> current = new Weighting<Double>() {
+            @Override
+            public double weight(Double label) {
+                Double w = changed.get(label);
+                return w == null ? label : w;
+            }
+        };
+        for (int trial = 0; trial < 2; trial += 1) {
+            changed.clear();
+            RandomGraph r = randomGraph(trial == 0, 300, 900, rand);
+            Graph<Integer, Double> g = r.graph;
+            List<Graph<Integer, Double>.Vertex> vs = r.vertices;
+            List<Graph<Integer, Double>.Edge> es =
+                new ArrayList<Graph<Integer, Double>.Edge>();
+            for (Graph<Integer, Double>.Edge e : g.edges()) {
+                es.add(e);
+            }
+            ShortestPathTree<Integer, Double> tree =
+                Graphs.shortestPathTree(g, vs.get(0), current);
+            for (int step = 0; step < 600; step += 1) {
+                int op = rand.nextInt(4);
+                if (op == 0) {
+                    if (step % 50 == 0) {
+                        vs.add(g.add(vs.size()));
+                    }
+                    es.add(g.add(vs.get(rand.nextInt(vs.size())),
+                                 vs.get(rand.nextInt(vs.size())),
+                                 1 + 9 * rand.nextDouble()));
+                    tree.edgeAdded(es.get(es.size() - 1));
+                } else if (op == 1) {
+                    Graph<Integer, Double>.Edge e =
+                        es.remove(rand.nextInt(es.size()));
+                    g.remove(e);
+                    tree.edgeRemoved(e);
+                } else {
+                    Graph<Integer, Double>.Edge e =
+                        es.get(rand.nextInt(es.size()));
+                    changed.put(e.getLabel(), op == 2
+                                ? 30 * rand.nextDouble()
+                                : current.weight(e.getLabel()) / 4);
+                    tree.weightChanged(e);
+                }
+                double[] expected =
+                    Graphs.distances(g, vs.get(0), current, false);
+                for (Graph<Integer, Double>.Vertex v : vs) {
+                    assertEquals("Distance", expected[v.index()],
+                                 tree.distance(v), 1e-9);
+                }
+            }
+            for (Graph<Integer, Double>.Vertex v : vs) {
+                List<Graph<Integer, Double>.Edge> path = tree.path(v);
+                if (path == null) {
+                    assertEquals("Unreachable", Double.POSITIVE_INFINITY,
+                                 tree.distance(v), 0.0);
+                } else {
+                    assertEquals("Path weight", tree.distance(v),
+                                 pathWeight(path, current), 1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void searchStats() {
+        DirectedGraph<String, String> g = new DirectedGraph<String, String>();
+        Graph<String, String>.Vertex a = g.add("a");
+        Graph<String, String>.Vertex b = g.add("b");
+        Graph<String, String>.Vertex c = g.add("c");
+        Graph<String, String>.Vertex d = g.add("d");
+        g.add(a, b, "1");
+        g.add(b, c, "1");
+        g.add(c, d, "1");
+        SearchContext<String, String> search =
+            new SearchContext<String, String>(g);
+        SearchStats stats = new SearchStats();
+        search.setStats(stats);
+        assertSame("Attached", stats, search.stats());
+        Graphs.shortestPath(search, a, d, Graphs.ZERO_DISTANCER,
+                            PARSE_WEIGHT);
+        assertEquals("Queries", 1, stats.queries());
+        assertEquals("Settled", 4, stats.settled());
+        assertEquals("Relaxed", 3, stats.relaxed());
+        assertEquals("Pushes", 4, stats.pushes());
+        assertEquals("Pops", 4, stats.pops());
+        assertEquals("Peak", 1, stats.peakOpen());
+        assertEquals("Distancer calls", 4, stats.distancerCalls());
+        assertEquals("Weighter calls", 3, stats.weighterCalls());
+        Graphs.bidirectionalShortestPath(search, a, d,
+                                         Graphs.ZERO_DISTANCER, PARSE_WEIGHT);
+        assertEquals("Bidirectional query", 2, stats.queries());
+        SearchStats total = new SearchStats();
+        total.add(stats);
+        total.add(stats);
+        assertEquals("Added", 2 * stats.settled(), total.settled());
+        search.setStats(null);
+        Graphs.shortestPath(search, a, d, Graphs.ZERO_DISTANCER,
+                            PARSE_WEIGHT);
+        assertEquals("Detached", 2, stats.queries());
+        stats.reset();
+        assertEquals("Reset", 0, stats.settled());
+    }
+
+    /** A DepthFirst that records its visits as a string. */
+    static class DepthFirstRecorder extends DepthFirst<String, String> {
+        @Override
+        protected void preVisit(Graph<String, String>.Vertex v) {
+            log.append("<").append(v.getLabel());
+            if (v.getLabel().equals(rejected)) {
+                throw new RejectException();
+            }
+            if (v.getLabel().equals(stop)) {
+                throw new StopException();
+            }
+        }
+
+        @Override
+        protected void postVisit(Graph<String, String>.Vertex v) {
+            log.append(">").append(v.getLabel());
+        }
+
+        @Override
+        protected void preVisit(Graph<String, String>.Edge e,
+                                Graph<String, String>.Vertex v0) {
+            log.append("[").append(e.getLabel());
+            if (e.getLabel().equals(rejected)) {
+                throw new RejectException();
+            }
+        }
+
+        @Override
+        protected void postVisit(Graph<String, String>.Edge e,
+                                 Graph<String, String>.Vertex v0) {
+            log.append("]").append(e.getLabel());
+        }
+
+        /** The visits so far. */
+        final StringBuilder log = new StringBuilder();
+        /** Label of a vertex or edge to reject, or null. */
+        String rejected;
+        /** Label of a vertex at which to stop, or null. */
+        String stop;
+    }
+
+    @Test
+    public void depthFirst() {
+        DirectedGraph<String, String> g = new DirectedGraph<String, String>();
+        Graph<String, String>.Vertex a = g.add("a");
+        Graph<String, String>.Vertex b = g.add("b");
+        Graph<String, String>.Vertex c = g.add("c");
+        Graph<String, String>.Vertex d = g.add("d");
+        g.add(a, b, "1");
+        g.add(a, c, "2");
+        g.add(b, c, "3");
+        g.add(c, d, "4");
+        DepthFirstRecorder r = new DepthFirstRecorder();
+        r.traverse(g, a);
+        assertEquals("Order", "<a[1<b[3<c[4<d>d]4>c]3>b]1>a",
+                     r.log.toString());
+        assertNull("Finished", r.finalVertex());
+
+        r = new DepthFirstRecorder();
+        r.rejected = "3";
+        r.traverse(g, a);
+        assertEquals("Rejected edge", "<a[1<b[3>b]1[2<c[4<d>d]4>c]2>a",
+                     r.log.toString());
+
+        r = new DepthFirstRecorder();
+        r.rejected = "b";
+        r.traverse(g, a);
+        assertEquals("Rejected vertex", "<a[1<b>b]1[2<c[4<d>d]4>c]2>a",
+                     r.log.toString());
+
+        r = new DepthFirstRecorder();
+        r.stop = "c";
+        r.traverse(g, a);
+        assertEquals("Stopped", "<a[1<b[3<c", r.log.toString());
+        assertSame("Stopping vertex", c, r.finalVertex());
+        assertNull("No stopping edge", r.finalEdge());
+        r.stop = null;
+        r.log.setLength(0);
+        r.continueTraversing(d);
+        r.continueTraversing(b);
+        r.continueTraversing(c);
+        assertEquals("Continued, not resumed", "<d>d", r.log.toString());
+
+        DepthFirstRecorder failing = new DepthFirstRecorder() {
+            @Override
+            protected void postVisit(Graph<String, String>.Vertex v) {
+                if (v.getLabel().equals("d") && !_failed) {
+                    _failed = true;
+                    throw new IllegalStateException();
+                }
+                super.postVisit(v);
+            }
+
+            /** True once I have thrown. */
+            private boolean _failed;
+        };
+        try {
+            failing.traverse(g, a);
+            fail("Exception not propagated");
+        } catch (IllegalStateException e) {
+            /* Expected. */
+        }
+        failing.log.setLength(0);
+        failing.traverse(g, b);
+        assertEquals("No stale frames", "<b[3<c[4<d>d]4>c]3>b",
+                     failing.log.toString());
+
+        int n = 1000000;
+        DirectedGraph<String, String> chain =
+            new DirectedGraph<String, String>();
+        Graph<String, String>.Vertex first = chain.add("x"), last = first;
+        for (int i = 0; i < n; i += 1) {
+            Graph<String, String>.Vertex next = chain.add("x");
+            chain.add(last, next, "e");
+            last = next;
+        }
+        final int[] counts = new int[2];
+        DepthFirst<String, String> deep = new DepthFirst<String, String>() {
+            @Override
+            protected void postVisit(Graph<String, String>.Vertex v) {
+                counts[0] += 1;
+            }
+
+            @Override
+            protected void postVisit(Graph<String, String>.Edge e,
+                                     Graph<String, String>.Vertex v0) {
+                counts[1] += 1;
+            }
+        };
+        deep.traverse(chain, first);
+        assertEquals("Deep vertices", n + 1, counts[0]);
+        assertEquals("Deep edges", n, counts[1]);
+    }
+
+    @Test
+    public void bestFirstTraversal() {
+        RandomGraph r = randomGraph(true, 500, 3000, new Random(17));
+        Graph<Integer, Double> g = r.graph;
+        List<Graph<Integer, Double>.Vertex> vs = r.vertices;
+        final double[] dist = new double[500];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        dist[0] = 0.0;
+        final List<Integer> visited = new ArrayList<Integer>();
+        Traversal<Integer, Double> dijkstra = new Traversal<Integer, Double>() {
+            @Override
+            protected void preVisit(Graph<Integer, Double>.Edge e,
+                                    Graph<Integer, Double>.Vertex v0) {
+                int w = e.getV(v0).getLabel();
+                dist[w] = Math.min(dist[w], dist[v0.getLabel()]
+                                   + e.getLabel());
+            }
+
+            @Override
+            protected void visit(Graph<Integer, Double>.Vertex v) {
+                visited.add(v.getLabel());
+            }
+        };
+        dijkstra.traverse(g, vs.get(0), new java.util.Comparator<Integer>() {
+            @Override
+            public int compare(Integer x, Integer y) {
+                return Double.compare(dist[x], dist[y]);
+            }
+        });
+        double[] expected = Graphs.distances(g, vs.get(0), IDENTITY, false);
+        int reachable = 0;
+        for (int i = 0; i < 500; i += 1) {
+            assertEquals("Distance", expected[i], dist[i], 1e-9);
+            if (expected[i] < Double.POSITIVE_INFINITY) {
+                reachable += 1;
+            }
+        }
+        assertEquals("Each visited once", reachable, visited.size());
+        for (int k = 1; k < visited.size(); k += 1) {
+            assertTrue("Best first", dist[visited.get(k - 1)]
+                       <= dist[visited.get(k)]);
+        }
+    }
+
+    @Test
+    public void breadthFirstLevels() {
+        Random rand = new Random(23);
+        Weighting<Double> unit = new Weighting<Double>() {
+            @Override
+            public double weight(Double d) {
+                return 1.0;
+            }
+        };
+        for (int trial = 0; trial < 4; trial += 1) {
+            RandomGraph r = randomGraph(trial % 2 == 0, 3000,
+                                        trial < 2 ? 4000 : 60000, rand);
+            Graph<Integer, Double> g = r.graph;
+            List<Graph<Integer, Double>.Vertex> vs = r.vertices;
+            g.remove(vs.get(9));
+            double[] expected =
+                Graphs.distances(g, vs.get(0), unit, false);
+            int[] parents = new int[3000];
+            int[] levels =
+                Graphs.breadthFirstLevels(new java.util.concurrent
+                                          .ForkJoinPool(4), g, vs.get(0),
+                                          parents);
+            assertEquals("Length", expected.length, levels.length);
+            for (int i = 0; i < expected.length; i += 1) {
+                int level = expected[i] == Double.POSITIVE_INFINITY ? -1
+                    : (int) expected[i];
+                assertEquals("Level", level, levels[i]);
+                if (level <= 0) {
+                    assertEquals("No parent", -1, parents[i]);
+                } else {
+                    assertEquals("Parent level", level - 1,
+                                 levels[parents[i]]);
+                    assertTrue("Parent edge",
+                               g.contains(vs.get(parents[i]), vs.get(i)));
+                }
+            }
+            int[] common = Graphs.breadthFirstLevels(g, vs.get(1));
+            expected = Graphs.distances(g, vs.get(1), unit, false);
+            for (int i = 0; i < expected.length; i += 1) {
+                assertEquals("Common pool", expected[i]
+                             == Double.POSITIVE_INFINITY ? -1
+                             : (int) expected[i], common[i]);
+            }
+        }
+    }
+
+    /** Returns the labels of the vertices delivered by WALK, in order,
+     *  pruning at the vertex labeled PRUNED, if any. */
+    private static String labels(Traversals.Walk<String, String> walk,
+                                 String pruned) {
+        StringBuilder result = new StringBuilder();
+        for (Graph<String, String>.Vertex v : walk) {
+            result.append(v.getLabel());
+            if (v.getLabel().equals(pruned)) {
+                walk.prune();
+            }
+        }
+        return result.toString();
+    }
+
+    @Test
+    public void lazyTraversals() {
+        DirectedGraph<String, String> g = new DirectedGraph<String, String>();
+        Graph<String, String>.Vertex a = g.add("a");
+        Graph<String, String>.Vertex b = g.add("b");
+        Graph<String, String>.Vertex c = g.add("c");
+        Graph<String, String>.Vertex d = g.add("d");
+        Graph<String, String>.Vertex e = g.add("e");
+        g.add(a, b, "1");
+        g.add(a, c, "2");
+        g.add(b, d, "3");
+        g.add(c, e, "4");
+        g.add(d, a, "5");
+        assertEquals("Preorder", "abdce",
+                     labels(Traversals.preorder(g, a), null));
+        assertEquals("Postorder", "dbeca",
+                     labels(Traversals.postorder(g, a), null));
+        assertEquals("Breadth first", "abcde",
+                     labels(Traversals.breadthFirst(g, a), null));
+        assertEquals("Pruned preorder", "abce",
+                     labels(Traversals.preorder(g, a), "b"));
+        assertEquals("Pruned breadth first", "abce",
+                     labels(Traversals.breadthFirst(g, a), "b"));
+        assertEquals("Pruned postorder", "dbeca",
+                     labels(Traversals.postorder(g, a), "b"));
+
+        Traversals.Walk<String, String> walk = Traversals.preorder(g, a);
+        assertSame("Start", a, walk.next());
+        assertSame("Successor", b, walk.next());
+        g.add(e, a, "6");
+        try {
+            walk.hasNext();
+            fail("Modified graph");
+        } catch (java.util.ConcurrentModificationException x) {
+            /* Expected. */
+        }
+
+        RandomGraph r = randomGraph(true, 500, 3000, new Random(19));
+        Graph<Integer, Double> h = r.graph;
+        List<Graph<Integer, Double>.Vertex> vs = r.vertices;
+        final double[] dist = new double[500];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        dist[0] = 0.0;
+        java.util.Comparator<Integer> byDist =
+            new java.util.Comparator<Integer>() {
+                @Override
+                public int compare(Integer x, Integer y) {
+                    return Double.compare(dist[x], dist[y]);
+                }
+            };
+        int delivered = 0;
+        double last = 0.0;
+        for (Graph<Integer, Double>.Vertex v
+                 : Traversals.bestFirst(h, vs.get(0), byDist)) {
+            assertTrue("Best first", last <= dist[v.getLabel()]);
+            last = dist[v.getLabel()];
+            delivered += 1;
+            for (Graph<Integer, Double>.Edge x : h.outEdges(v)) {
+                int w = x.getV(v).getLabel();
+                dist[w] = Math.min(dist[w], last + x.getLabel());
+            }
+        }
+        double[] expected = Graphs.distances(h, vs.get(0), IDENTITY, false);
+        int reachable = 0;
+        for (int i = 0; i < 500; i += 1) {
+            assertEquals("Distance", expected[i], dist[i], 1e-9);
+            if (expected[i] < Double.POSITIVE_INFINITY) {
+                reachable += 1;
+            }
+        }
+        assertEquals("Each delivered once", reachable, delivered);
+
+        int n = 1000000;
+        DirectedGraph<String, String> chain =
+            new DirectedGraph<String, String>();
+        Graph<String, String>.Vertex first = chain.add("x"), end = first;
+        for (int i = 0; i < n; i += 1) {
+            Graph<String, String>.Vertex next = chain.add("x");
+            chain.add(end, next, "e");
+            end = next;
+        }
+        int count = 0;
+        for (Graph<String, String>.Vertex v
+                 : Traversals.postorder(chain, first)) {
+            count += 1;
+        }
+        assertEquals("Deep postorder", n + 1, count);
+    }
+
 }
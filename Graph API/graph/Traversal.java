@@ -1,9 +1,8 @@
 package graph;
 
+import java.util.ArrayDeque;
 import java.util.Comparator;
-import java.util.LinkedList;
-import java.util.TreeSet;
-import java.util.ArrayList;
+import java.util.Arrays;
 
 /** Implements a generalized traversal of a graph.  At any given time,
  *  there is a particular set of untraversed vertices---the "fringe."
@@ -21,8 +20,10 @@ import java.util.ArrayList;
  *       itself after traversing all successors as for depth-first
  *       traversals.
  *     + A general traversal treats the fringe as an ordered set, as
- *       determined by a Comparator argument.  There is no postVisit
- *       for this type of traversal.
+ *       determined by a Comparator argument.  Each vertex is in the
+ *       fringe at most once; reaching it again moves it forward if its
+ *       label now orders earlier.  There is no postVisit for this type
+ *       of traversal.
  *  As vertices are added to the fringe, the traversal calls a
  *  preVisit method on the vertex.
  *
@@ -45,45 +46,50 @@ public class Traversal<VLabel, ELabel> {
     public void traverse(Graph<VLabel, ELabel> G,
                          Graph<VLabel, ELabel>.Vertex v,
                          final Comparator<VLabel> order) {
+        _graph = G;
         _compare = order;
         traversal = Trav.GEN;
-        TreeSet<Graph<VLabel, ELabel>.Vertex> set =
-            new TreeSet
-            <Graph<VLabel, ELabel>.Vertex>(new Comparator
-                                           <Graph<VLabel, ELabel>.Vertex>() {
-                    public int compare(Graph<VLabel, ELabel>.Vertex v1,
-                                       Graph<VLabel, ELabel>.Vertex v2) {
-                        int temp = order.compare(v1.getLabel(), v2.getLabel());
-                        return temp != 0 ? temp : -1;
-                    }
-                });
-        set.add(v);
-        while (!set.isEmpty()) {
-            _finalVertex = set.first();
+        newTraversal();
+        generalTraverse(v);
+    }
+
+    /** Continue a general traversal of _graph from V, in the order given
+     *  by _compare, without revisiting vertices already traversed.  The
+     *  fringe is a LabelHeap, which holds each vertex at most once and
+     *  moves a vertex forward when it is added again, so that the
+     *  traversal takes O((V+E) lg V) time. */
+    private void generalTraverse(Graph<VLabel, ELabel>.Vertex v) {
+        Graph<VLabel, ELabel> G = _graph;
+        LabelHeap<VLabel, ELabel> fringe =
+            new LabelHeap<VLabel, ELabel>(_compare);
+        fringe.add(v);
+        while (!fringe.isEmpty()) {
+            _finalVertex = fringe.poll();
+            if (marked(_finalVertex)) {
+                continue;
+            }
             try {
                 visit(_finalVertex);
-                _finalVertex.mark();
+                mark(_finalVertex);
             } catch (StopException k) {
                 System.out.printf("Error: %s", k);
                 System.exit(1);
             }
-            if (G.outDegree(_finalVertex) > 0) {
-                for (Graph<VLabel, ELabel>.Edge e: G.outEdges(_finalVertex)) {
-                    if (!e.getV(_finalVertex).marked()) {
-                        try {
-                            preVisit(e, _finalVertex);
-                            set.add(e.getV(_finalVertex));
-                        } catch (StopException k) {
-                            System.out.printf("Error: %s", k);
-                            System.exit(1);
-                        } catch (RejectException k) {
-                            e.getV(_finalVertex).mark();
-                            continue;
-                        }
+            for (int k = 0, d = G.outDegree(_finalVertex); k < d; k += 1) {
+                Graph<VLabel, ELabel>.Edge e = G.outEdge(_finalVertex, k);
+                Graph<VLabel, ELabel>.Vertex w = e.getV(_finalVertex);
+                if (!marked(w)) {
+                    try {
+                        preVisit(e, _finalVertex);
+                        fringe.add(w);
+                    } catch (StopException x) {
+                        System.out.printf("Error: %s", x);
+                        System.exit(1);
+                    } catch (RejectException x) {
+                        mark(w);
                     }
                 }
             }
-            set.remove(_finalVertex);
         }
     }
 
@@ -95,50 +101,61 @@ public class Traversal<VLabel, ELabel> {
      *  the postVisit method on it. */
     public void depthFirstTraverse(Graph<VLabel, ELabel> G,
                                    Graph<VLabel, ELabel>.Vertex v) {
+        _graph = G;
         traversal = Trav.DFS;
-        LinkedList<Graph<VLabel, ELabel>.Vertex> list =
-            new LinkedList<Graph<VLabel, ELabel>.Vertex>();
-        ArrayList<Graph<VLabel, ELabel>.Vertex> postvisited =
-            new ArrayList<Graph<VLabel, ELabel>.Vertex>();
-        list.add(v);
-        while (!list.isEmpty()) {
-            _finalVertex = list.getFirst();
-            if (!_finalVertex.marked()) {
+        newTraversal();
+        depthFirst(v);
+    }
+
+    /** Continue a depth-first traversal of _graph from V without
+     *  revisiting vertices already traversed.  The fringe is a stack in
+     *  an ArrayDeque.  A visited vertex stays on the stack beneath its
+     *  successors and is postvisited when it surfaces again; copies of
+     *  vertices already traversed are discarded as they surface. */
+    private void depthFirst(Graph<VLabel, ELabel>.Vertex v) {
+        Graph<VLabel, ELabel> G = _graph;
+        _postEpoch = nextEpoch(_postMarks, _postEpoch);
+        ArrayDeque<Graph<VLabel, ELabel>.Vertex> stack =
+            new ArrayDeque<Graph<VLabel, ELabel>.Vertex>();
+        stack.push(v);
+        while (!stack.isEmpty()) {
+            _finalVertex = stack.peek();
+            if (!marked(_finalVertex)) {
                 try {
                     visit(_finalVertex);
-                    _finalVertex.mark();
+                    mark(_finalVertex);
                 } catch (StopException k) {
                     System.out.printf("Error: %s", k);
                     System.exit(1);
                 }
-                if (G.outDegree(_finalVertex) > 0) {
-                    for (Graph<VLabel, ELabel>.Edge e
-                             : G.outEdges(_finalVertex)) {
-                        if (!e.getV(_finalVertex).marked()) {
-                            try {
-                                list.addFirst(e.getV(_finalVertex));
-                                preVisit(e, _finalVertex);
-                            } catch (StopException k) {
-                                System.out.printf("Error: %s", k);
-                                System.exit(1);
-                            } catch (RejectException k) {
-                                e.getV(_finalVertex).mark();
-                                continue;
-                            }
+                for (int k = 0, d = G.outDegree(_finalVertex); k < d;
+                     k += 1) {
+                    Graph<VLabel, ELabel>.Edge e = G.outEdge(_finalVertex, k);
+                    Graph<VLabel, ELabel>.Vertex w = e.getV(_finalVertex);
+                    if (!marked(w)) {
+                        try {
+                            preVisit(e, _finalVertex);
+                            stack.push(w);
+                        } catch (StopException x) {
+                            System.out.printf("Error: %s", x);
+                            System.exit(1);
+                        } catch (RejectException x) {
+                            mark(w);
                         }
                     }
                 }
             } else {
-                if (!postvisited.contains(_finalVertex)) {
+                if (!postVisited(_finalVertex)) {
                     try {
                         postVisit(_finalVertex);
-                        postvisited.add(_finalVertex);
+                        _postMarks = stamp(_postMarks, _finalVertex,
+                                           _postEpoch);
                     } catch (StopException k) {
                         System.out.printf("Error: %s", k);
                         System.exit(1);
                     }
                 }
-                list.remove();
+                stack.pop();
             }
         }
     }
@@ -151,53 +168,58 @@ public class Traversal<VLabel, ELabel> {
      *  the postVisit method on it. */
     public void breadthFirstTraverse(Graph<VLabel, ELabel> G,
                                      Graph<VLabel, ELabel>.Vertex v) {
+        _graph = G;
         traversal = Trav.BFS;
-        LinkedList<Graph<VLabel, ELabel>.Vertex> list =
-            new LinkedList<Graph<VLabel, ELabel>.Vertex>();
-        ArrayList<Graph<VLabel, ELabel>.Vertex> postvisited =
-            new ArrayList<Graph<VLabel, ELabel>.Vertex>();
-        ArrayList<Graph<VLabel, ELabel>.Vertex> marked =
-            new ArrayList<Graph<VLabel, ELabel>.Vertex>();
-        list.add(v);
-        while (!list.isEmpty()) {
-            _finalVertex = list.getFirst();
-            if (!_finalVertex.marked()) {
+        newTraversal();
+        breadthFirst(v);
+    }
+
+    /** Continue a breadth-first traversal of _graph from V without
+     *  revisiting vertices already traversed.  The fringe is a queue in
+     *  an ArrayDeque.  A visited vertex is queued again behind its
+     *  successors and is postvisited when it reaches the head again;
+     *  copies of vertices already traversed are discarded there. */
+    private void breadthFirst(Graph<VLabel, ELabel>.Vertex v) {
+        Graph<VLabel, ELabel> G = _graph;
+        _postEpoch = nextEpoch(_postMarks, _postEpoch);
+        ArrayDeque<Graph<VLabel, ELabel>.Vertex> queue =
+            new ArrayDeque<Graph<VLabel, ELabel>.Vertex>();
+        queue.add(v);
+        while (!queue.isEmpty()) {
+            _finalVertex = queue.poll();
+            if (!marked(_finalVertex)) {
                 try {
                     visit(_finalVertex);
-                    _finalVertex.mark();
+                    mark(_finalVertex);
                 } catch (StopException k) {
                     System.out.printf("Error: %s", k);
                 }
-                if (G.outDegree(_finalVertex) > 0) {
-                    for (Graph<VLabel, ELabel>.Edge e
-                             :G.outEdges(_finalVertex)) {
-                        if (!e.getV(_finalVertex).marked()) {
-                            try {
-                                preVisit(e, _finalVertex);
-                                list.add(e.getV(_finalVertex));
-                            } catch (StopException k) {
-                                System.out.printf("Error: %s", k);
-                                System.exit(1);
-                            } catch (RejectException k) {
-                                e.getV(_finalVertex).mark();
-                                continue;
-                            }
+                for (int k = 0, d = G.outDegree(_finalVertex); k < d;
+                     k += 1) {
+                    Graph<VLabel, ELabel>.Edge e = G.outEdge(_finalVertex, k);
+                    Graph<VLabel, ELabel>.Vertex w = e.getV(_finalVertex);
+                    if (!marked(w)) {
+                        try {
+                            preVisit(e, _finalVertex);
+                            queue.add(w);
+                        } catch (StopException x) {
+                            System.out.printf("Error: %s", x);
+                            System.exit(1);
+                        } catch (RejectException x) {
+                            mark(w);
                         }
                     }
                 }
-                list.add(_finalVertex);
-            } else {
-                if (!postvisited.contains(_finalVertex)) {
-                    try {
-                        postVisit(_finalVertex);
-                        postvisited.add(_finalVertex);
-                    } catch (StopException k) {
-                        System.out.printf("Error: %s", k);
-                        System.exit(1);
-                    }
+                queue.add(_finalVertex);
+            } else if (!postVisited(_finalVertex)) {
+                try {
+                    postVisit(_finalVertex);
+                    _postMarks = stamp(_postMarks, _finalVertex, _postEpoch);
+                } catch (StopException k) {
+                    System.out.printf("Error: %s", k);
+                    System.exit(1);
                 }
             }
-            list.remove(_finalVertex);
         }
     }
 
@@ -207,19 +229,71 @@ public class Traversal<VLabel, ELabel> {
     public void continueTraversing(Graph<VLabel, ELabel>.Vertex v) {
         switch (traversal) {
         case GEN:
-            traverse(_graph, v, _compare);
+            generalTraverse(v);
             break;
         case DFS:
-            depthFirstTraverse(_graph, v);
+            depthFirst(v);
             break;
         case BFS:
-            breadthFirstTraverse(_graph, v);
+            breadthFirst(v);
             break;
         default:
             break;
         }
     }
 
+    /** Start a new traversal, in which no vertex has yet been traversed.
+     *  This takes constant time (amortized), regardless of the size of
+     *  the graph. */
+    private void newTraversal() {
+        _epoch = nextEpoch(_marks, _epoch);
+    }
+
+    /** Returns the stamp following EPOCH for STAMPS, clearing STAMPS if
+     *  the stamps have run out. */
+    private static int nextEpoch(int[] stamps, int epoch) {
+        if (epoch == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            return 1;
+        }
+        return epoch + 1;
+    }
+
+    /** Returns STAMPS, or a copy of it enlarged if needed to hold the
+     *  stamp of V, after setting the stamp of V to EPOCH. */
+    private static int[] stamp(int[] stamps, Graph<?, ?>.Vertex v,
+                               int epoch) {
+        int i = v.index();
+        if (i >= stamps.length) {
+            stamps = Arrays.copyOf(stamps, Math.max(i + 1,
+                                                    2 * stamps.length));
+        }
+        stamps[i] = epoch;
+        return stamps;
+    }
+
+    /** Returns true iff STAMPS records V as stamped with EPOCH. */
+    private static boolean stamped(int[] stamps, Graph<?, ?>.Vertex v,
+                                   int epoch) {
+        int i = v.index();
+        return i < stamps.length && stamps[i] == epoch;
+    }
+
+    /** Record V as traversed in the current traversal. */
+    private void mark(Graph<VLabel, ELabel>.Vertex v) {
+        _marks = stamp(_marks, v, _epoch);
+    }
+
+    /** Returns true iff V has been traversed in the current traversal. */
+    private boolean marked(Graph<VLabel, ELabel>.Vertex v) {
+        return stamped(_marks, v, _epoch);
+    }
+
+    /** Returns true iff V has been postvisited by the current call. */
+    private boolean postVisited(Graph<VLabel, ELabel>.Vertex v) {
+        return stamped(_postMarks, v, _postEpoch);
+    }
+
     /** If the traversal ends prematurely, returns the Vertex argument to
      *  preVisit, visit, or postVisit that caused a Visit routine to
      *  return false.  Otherwise, returns null. */
@@ -278,4 +352,19 @@ public class Traversal<VLabel, ELabel> {
     private Comparator<VLabel> _compare;
     /** The traversal. */
     private Trav traversal;
+    /** _marks[v.index()] == _epoch iff vertex v has been traversed in
+     *  the current traversal.  Each traversal uses a new _epoch, so that
+     *  forgetting the marks of the last one takes constant time, and
+     *  these marks belong to this Traversal alone, so that traversals
+     *  of the same graph by different Traversals do not interfere. */
+    private int[] _marks = new int[INITIAL_MARKS];
+    /** The stamp of vertices traversed in the current traversal. */
+    private int _epoch;
+    /** _postMarks[v.index()] == _postEpoch iff vertex v has been
+     *  postvisited by the current call of a traversal method. */
+    private int[] _postMarks = new int[INITIAL_MARKS];
+    /** The stamp of vertices postvisited in the current call. */
+    private int _postEpoch;
+    /** Initial length of _marks and _postMarks. */
+    private static final int INITIAL_MARKS = 16;
 }
@@ -0,0 +1,324 @@
+package graph;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+
+/** Traversals of graphs that deliver vertices one at a time, on demand,
+ *  rather than calling back into a Traversal subclass.  For example,
+ *      for (Graph<String, NoLabel>.Vertex v : Traversals.preorder(G, s)) {
+ *          if (v.getLabel().equals(goal)) {
+ *              break;
+ *          }
+ *      }
+ *  finds a vertex and stops, having looked at no more of G than a
+ *  depth-first search must to reach it.  Each traversal is suspended
+ *  between calls to next, keeping its own fringe and record of the
+ *  vertices it has reached, so that any number may be in progress on
+ *  one graph at once.  A traversal goes no further than the last vertex
+ *  delivered until its next vertex is requested, so the caller may
+ *  examine that vertex (and, for bestFirst, relabel its successors)
+ *  before the traversal continues from it, or prune the traversal there
+ *  (see Walk.prune).  A traversal throws ConcurrentModificationException
+ *  if its graph's structure changes while it is in progress.
+ *  @author Julian Wong
+ */
+public final class Traversals {
+
+    /** Returns the vertices of G reachable from V in depth-first
+     *  preorder: each vertex comes before all those first reached from
+     *  it, and V comes first. */
+    public static <VLabel, ELabel> Walk<VLabel, ELabel>
+    preorder(Graph<VLabel, ELabel> G, Graph<VLabel, ELabel>.Vertex v) {
+        return new DepthFirstWalk<VLabel, ELabel>(G, v, false);
+    }
+
+    /** Returns the vertices of G reachable from V in depth-first
+     *  postorder: each vertex comes after all those first reached from
+     *  it, and V comes last. */
+    public static <VLabel, ELabel> Walk<VLabel, ELabel>
+    postorder(Graph<VLabel, ELabel> G, Graph<VLabel, ELabel>.Vertex v) {
+        return new DepthFirstWalk<VLabel, ELabel>(G, v, true);
+    }
+
+    /** Returns the vertices of G reachable from V in breadth-first order:
+     *  in order of the number of edges on a shortest path from V, and V
+     *  first. */
+    public static <VLabel, ELabel> Walk<VLabel, ELabel>
+    breadthFirst(Graph<VLabel, ELabel> G, Graph<VLabel, ELabel>.Vertex v) {
+        return new BreadthFirstWalk<VLabel, ELabel>(G, v);
+    }
+
+    /** Returns the vertices of G reachable from V, V first, and then,
+     *  each time, the vertex reached so far that ORDER puts first among
+     *  the successors of the vertices already delivered.  Ties go to the
+     *  vertex reached first.  The labels of the successors of a vertex are
+     *  read when the next vertex is requested, so a caller may change
+     *  them after receiving that vertex (as Dijkstra's algorithm lowers
+     *  distances); a label must not otherwise change while its vertex is
+     *  waiting to be delivered. */
+    public static <VLabel, ELabel> Walk<VLabel, ELabel>
+    bestFirst(Graph<VLabel, ELabel> G, Graph<VLabel, ELabel>.Vertex v,
+              Comparator<? super VLabel> order) {
+        return new BestFirstWalk<VLabel, ELabel>(G, v, order);
+    }
+
+    /** A traversal of a graph, delivering its vertices in some order. */
+    public abstract static class Walk<VLabel, ELabel>
+        extends Iteration<Graph<VLabel, ELabel>.Vertex> {
+
+        /** A traversal of G that delivers START first if FIRST. */
+        Walk(Graph<VLabel, ELabel> G, Graph<VLabel, ELabel>.Vertex start,
+             boolean first) {
+            _G = G;
+            _expectedModCount = G.modCount();
+            mark(start);
+            _next = first ? start : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (_G.modCount() != _expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (_next == null && !_done) {
+                _next = advance(_pruned);
+                _done = _next == null;
+                _last = null;
+                _pruned = false;
+            }
+            return _next != null;
+        }
+
+        @Override
+        public Graph<VLabel, ELabel>.Vertex next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            _last = _next;
+            _next = null;
+            return _last;
+        }
+
+        /** Do not continue the traversal from the vertex last delivered by
+         *  next: vertices reachable only through it are not delivered.
+         *  Must be called before the following call of hasNext or next.
+         *  Has no effect in postorder, whose vertices come after their
+         *  successors. */
+        public void prune() {
+            if (_last == null) {
+                throw new IllegalStateException("no vertex to prune");
+            }
+            _pruned = true;
+        }
+
+        /** Returns the graph I traverse. */
+        Graph<VLabel, ELabel> graph() {
+            return _G;
+        }
+
+        /** Returns the next vertex to deliver, or null if there are no
+         *  more, having first continued the traversal from the vertex last
+         *  delivered unless PRUNED. */
+        abstract Graph<VLabel, ELabel>.Vertex advance(boolean pruned);
+
+        /** Record V as reached. */
+        final void mark(Graph<VLabel, ELabel>.Vertex v) {
+            int i = v.index();
+            if (i >= _marks.length) {
+                _marks = Arrays.copyOf(_marks, Math.max(i + 1,
+                                                        2 * _marks.length));
+            }
+            _marks[i] = true;
+        }
+
+        /** Returns true iff V has been reached. */
+        final boolean marked(Graph<VLabel, ELabel>.Vertex v) {
+            int i = v.index();
+            return i < _marks.length && _marks[i];
+        }
+
+        /** The graph traversed. */
+        private final Graph<VLabel, ELabel> _G;
+        /** The modification count of _G when I started. */
+        private final int _expectedModCount;
+        /** _marks[v.index()] iff v has been reached.  Grows with the
+         *  indices reached, so that a traversal abandoned early does not
+         *  pay for the whole graph. */
+        private boolean[] _marks = new boolean[INITIAL_SIZE];
+        /** The next vertex to deliver, if already found, or null. */
+        private Graph<VLabel, ELabel>.Vertex _next;
+        /** The vertex last delivered, until the traversal continues past
+         *  it, or null. */
+        private Graph<VLabel, ELabel>.Vertex _last;
+        /** True iff _last has been pruned. */
+        private boolean _pruned;
+        /** True iff there are no more vertices. */
+        private boolean _done;
+    }
+
+    /** A depth-first traversal.  Its stack holds a frame for each vertex
+     *  on the path from the start to the vertex being explored: the
+     *  vertex, and the position of the next of its outgoing edges to
+     *  consider. */
+    private static class DepthFirstWalk<VLabel, ELabel>
+        extends Walk<VLabel, ELabel> {
+
+        /** A traversal of G from START, in postorder if POST, and
+         *  otherwise in preorder. */
+        DepthFirstWalk(Graph<VLabel, ELabel> G,
+                       Graph<VLabel, ELabel>.Vertex start, boolean post) {
+            super(G, start, !post);
+            _post = post;
+            push(start);
+        }
+
+        @Override
+        Graph<VLabel, ELabel>.Vertex advance(boolean pruned) {
+            if (pruned && !_post && _depth > 0) {
+                _cursors[_depth - 1] = Integer.MAX_VALUE;
+            }
+            Graph<VLabel, ELabel> G = graph();
+            while (_depth > 0) {
+                int top = _depth - 1;
+                Graph<VLabel, ELabel>.Vertex u = frameVertex(top);
+                int k = _cursors[top];
+                if (k < G.outDegree(u)) {
+                    _cursors[top] = k + 1;
+                    Graph<VLabel, ELabel>.Vertex w = G.outEdge(u, k).getV(u);
+                    if (!marked(w)) {
+                        mark(w);
+                        push(w);
+                        if (!_post) {
+                            return w;
+                        }
+                    }
+                } else {
+                    _depth -= 1;
+                    _frameVertices[_depth] = null;
+                    if (_post) {
+                        return u;
+                    }
+                }
+            }
+            return null;
+        }
+
+        /** Push a frame for V, with its edge cursor at 0. */
+        private void push(Graph<VLabel, ELabel>.Vertex v) {
+            if (_depth == _cursors.length) {
+                _cursors = Arrays.copyOf(_cursors, 2 * _depth);
+                _frameVertices = Arrays.copyOf(_frameVertices, 2 * _depth);
+            }
+            _cursors[_depth] = 0;
+            _frameVertices[_depth] = v;
+            _depth += 1;
+        }
+
+        /** Returns the vertex of frame K. */
+        @SuppressWarnings("unchecked")
+        private Graph<VLabel, ELabel>.Vertex frameVertex(int k) {
+            return (Graph<VLabel, ELabel>.Vertex) _frameVertices[k];
+        }
+
+        /** True iff I deliver vertices in postorder. */
+        private final boolean _post;
+        /** Number of frames on the stack. */
+        private int _depth;
+        /** _cursors[k] is the position of the next outgoing edge of
+         *  _frameVertices[k] to consider. */
+        private int[] _cursors = new int[INITIAL_SIZE];
+        /** The vertices of the frames. */
+        private Object[] _frameVertices = new Object[INITIAL_SIZE];
+    }
+
+    /** A breadth-first traversal.  Vertices are marked as they join the
+     *  queue, so that each joins it once. */
+    private static class BreadthFirstWalk<VLabel, ELabel>
+        extends Walk<VLabel, ELabel> {
+
+        /** A traversal of G from START. */
+        BreadthFirstWalk(Graph<VLabel, ELabel> G,
+                         Graph<VLabel, ELabel>.Vertex start) {
+            super(G, start, true);
+            _current = start;
+        }
+
+        @Override
+        Graph<VLabel, ELabel>.Vertex advance(boolean pruned) {
+            if (_current != null && !pruned) {
+                Graph<VLabel, ELabel> G = graph();
+                for (int k = 0, d = G.outDegree(_current); k < d; k += 1) {
+                    Graph<VLabel, ELabel>.Vertex w =
+                        G.outEdge(_current, k).getV(_current);
+                    if (!marked(w)) {
+                        mark(w);
+                        _queue.add(w);
+                    }
+                }
+            }
+            _current = _queue.poll();
+            return _current;
+        }
+
+        /** The vertex last delivered, whose successors are yet to be
+         *  queued, or null. */
+        private Graph<VLabel, ELabel>.Vertex _current;
+        /** Vertices reached but not yet delivered. */
+        private final ArrayDeque<Graph<VLabel, ELabel>.Vertex> _queue =
+            new ArrayDeque<Graph<VLabel, ELabel>.Vertex>();
+    }
+
+    /** A best-first traversal.  Vertices are marked as they are
+     *  delivered; until then, each is in the fringe at most once, and
+     *  reaching it again moves it forward if its label now orders
+     *  earlier. */
+    private static class BestFirstWalk<VLabel, ELabel>
+        extends Walk<VLabel, ELabel> {
+
+        /** A traversal of G from START in the order given by ORDER. */
+        BestFirstWalk(Graph<VLabel, ELabel> G,
+                      Graph<VLabel, ELabel>.Vertex start,
+                      Comparator<? super VLabel> order) {
+            super(G, start, true);
+            _current = start;
+            _fringe = new LabelHeap<VLabel, ELabel>(order);
+        }
+
+        @Override
+        Graph<VLabel, ELabel>.Vertex advance(boolean pruned) {
+            if (_current != null && !pruned) {
+                Graph<VLabel, ELabel> G = graph();
+                for (int k = 0, d = G.outDegree(_current); k < d; k += 1) {
+                    Graph<VLabel, ELabel>.Vertex w =
+                        G.outEdge(_current, k).getV(_current);
+                    if (!marked(w)) {
+                        _fringe.add(w);
+                    }
+                }
+            }
+            if (_fringe.isEmpty()) {
+                _current = null;
+            } else {
+                _current = _fringe.poll();
+                mark(_current);
+            }
+            return _current;
+        }
+
+        /** The vertex last delivered, whose successors are yet to be
+         *  added to the fringe, or null. */
+        private Graph<VLabel, ELabel>.Vertex _current;
+        /** Vertices reached but not yet delivered. */
+        private final LabelHeap<VLabel, ELabel> _fringe;
+    }
+
+    /** Initial length of my arrays. */
+    private static final int INITIAL_SIZE = 16;
+
+    /** Not instantiable. */
+    private Traversals() {
+    }
+}
@@ -15,6 +15,7 @@ import graph.Graph;
 import graph.NoLabel;
 import graph.StopException;
 import graph.DirectedGraph;
+import graph.GraphBuilder;
 
 /** Initial class for the 'make' program.
  *  @author Julian Wong
@@ -75,12 +76,21 @@ public final class Main {
      */
     private static void make(String makefileName, String fileInfoName,
                              List<String> targets) {
-        map = new DirectedGraph<Rule, NoLabel>();
-        vertices = new HashMap<String, Graph<Rule, NoLabel>.Vertex>();
-        _built = new ArrayList<Graph<Rule, NoLabel>.Vertex>();
+        _builder = new GraphBuilder<Rule, NoLabel>();
+        _ids = new HashMap<String, Integer>();
+        _builtIds = new ArrayList<Integer>();
         startTime = 0.0;
         readFileInfo(fileInfoName);
         readMakeFile(makefileName);
+        map = _builder.buildDirected();
+        vertices = new HashMap<String, Graph<Rule, NoLabel>.Vertex>();
+        for (String name : _ids.keySet()) {
+            vertices.put(name, _builder.vertex(_ids.get(name)));
+        }
+        _built = new ArrayList<Graph<Rule, NoLabel>.Vertex>();
+        for (int id : _builtIds) {
+            _built.add(_builder.vertex(id));
+        }
         if (targets.size() == 0) {
             targets.add(first);
         }
@@ -106,8 +116,8 @@ public final class Main {
                 if (line != null) {
                     holder = new Rule(line[0]);
                     holder.setWeight(Double.parseDouble(line[1]));
-                    vertices.put(line[0], map.add(holder));
-                    _built.add(vertices.get(line[0]));
+                    _ids.put(line[0], _builder.addVertex(holder));
+                    _builtIds.add(_ids.get(line[0]));
                 }
             }
         } catch (FileNotFoundException e) {
@@ -134,21 +144,21 @@ public final class Main {
                     if (first == null) {
                         first = temp[0];
                     }
-                    if (vertices.get(temp[0]) == null) {
+                    if (_ids.get(temp[0]) == null) {
                         target = new Rule(temp[0]);
                         target.setWeight(startTime);
-                        vertices.put(temp[0], map.add(target));
+                        _ids.put(temp[0], _builder.addVertex(target));
                     } else {
-                        target = vertices.get(temp[0]).getLabel();
+                        target = _builder.getLabel(_ids.get(temp[0]));
                     }
                     for (int i = 1; i < temp.length; i += 1) {
-                        if (vertices.get(temp[i]) == null) {
+                        if (_ids.get(temp[i]) == null) {
                             others = new Rule(temp[i]);
                             others.setWeight(startTime);
-                            vertices.put(temp[i], map.add(others));
+                            _ids.put(temp[i], _builder.addVertex(others));
                         }
-                        map.add(vertices.get(temp[0]),
-                                vertices.get(temp[i]), new NoLabel());
+                        _builder.addEdge(_ids.get(temp[0]), _ids.get(temp[i]),
+                                         new NoLabel());
                     }
                 } else if (lin.hasNext()) {
                     temp = line.group(0).split("\\s");
@@ -279,6 +289,15 @@ public final class Main {
     /** Stores vertexes. */
     private static HashMap<String, Graph<Rule, NoLabel>.Vertex> vertices;
 
+    /** Accumulates the graph while the input files are read. */
+    private static GraphBuilder<Rule, NoLabel> _builder;
+
+    /** Ids in _builder of the vertexes, by name. */
+    private static HashMap<String, Integer> _ids;
+
+    /** Ids in _builder of the vertexes named in the file info. */
+    private static ArrayList<Integer> _builtIds;
+
     /** First target in make file. */
     private static String first;
 
@@ -0,0 +1,218 @@
+package trip;
+
+import graph.Graph;
+import trip.Main.Distance;
+import trip.Main.Location;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/** A spatial index of the locations of a map by their coordinates, for
+ *  finding the locations nearest a point or within a rectangle.  It is a
+ *  k-d tree stored implicitly in arrays: the location in the middle of
+ *  any range of positions that the tree covers splits it, alternately by
+ *  x and by y coordinate, into the locations before it, which are no
+ *  greater in that coordinate, and those after it, which are no less.
+ *  The tree is built once, in O(N lg N) time for N locations, and is
+ *  balanced, so that a nearest-location query takes O(lg N) time on
+ *  typical maps.  It does not change, and may be shared among threads.
+ *  @author Julian Wong
+ */
+final class LocationIndex {
+
+    /** An index of VERTICES, the vertices of a map. */
+    LocationIndex(Collection<Graph<Location, Distance>.Vertex> vertices) {
+        int n = vertices.size();
+        _vertices = new Object[n];
+        _x = new double[n];
+        _y = new double[n];
+        int i = 0;
+        for (Graph<Location, Distance>.Vertex v : vertices) {
+            _vertices[i] = v;
+            _x[i] = v.getLabel().getX();
+            _y[i] = v.getLabel().getY();
+            i += 1;
+        }
+        build(0, n, true);
+    }
+
+    /** Returns the number of locations indexed. */
+    int size() {
+        return _vertices.length;
+    }
+
+    /** Returns the vertex whose location is nearest (X, Y), or null if I
+     *  am empty. */
+    Graph<Location, Distance>.Vertex nearest(double x, double y) {
+        List<Graph<Location, Distance>.Vertex> result = nearest(x, y, 1);
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    /** Returns the K vertices whose locations are nearest (X, Y), nearest
+     *  first, or all of them if there are fewer than K. */
+    List<Graph<Location, Distance>.Vertex> nearest(final double x,
+                                                   final double y, int k) {
+        PriorityQueue<Integer> best =
+            new PriorityQueue<Integer>(Math.max(k, 1),
+                                       new Comparator<Integer>() {
+                    @Override
+                    public int compare(Integer i, Integer j) {
+                        return Double.compare(dist2(j, x, y),
+                                              dist2(i, x, y));
+                    }
+                });
+        if (k > 0) {
+            nearest(0, _vertices.length, true, x, y, k, best);
+        }
+        ArrayList<Graph<Location, Distance>.Vertex> result =
+            new ArrayList<Graph<Location, Distance>.Vertex>();
+        while (!best.isEmpty()) {
+            result.add(vertex(best.poll()));
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /** Returns the vertices whose locations (x, y) satisfy
+     *  XLOW <= x <= XHIGH and YLOW <= y <= YHIGH, in no particular
+     *  order. */
+    List<Graph<Location, Distance>.Vertex> within(double xlow, double ylow,
+                                                  double xhigh,
+                                                  double yhigh) {
+        ArrayList<Graph<Location, Distance>.Vertex> result =
+            new ArrayList<Graph<Location, Distance>.Vertex>();
+        within(0, _vertices.length, true, xlow, ylow, xhigh, yhigh, result);
+        return result;
+    }
+
+    /** Arrange positions LO .. HI-1 into a k-d tree, splitting first by
+     *  x coordinate if BYX, and otherwise by y. */
+    private void build(int lo, int hi, boolean byX) {
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            select(lo, hi, mid, byX ? _x : _y);
+            build(lo, mid, !byX);
+            lo = mid + 1;
+            byX = !byX;
+        }
+    }
+
+    /** Rearrange positions LO .. HI-1 so that position K holds the
+     *  location that would be there if they were sorted by KEYS, with
+     *  no greater keys before it and no smaller ones after. */
+    private void select(int lo, int hi, int k, double[] keys) {
+        hi -= 1;
+        while (lo < hi) {
+            double pivot = keys[(lo + hi) >>> 1];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (keys[i] < pivot) {
+                    i += 1;
+                }
+                while (keys[j] > pivot) {
+                    j -= 1;
+                }
+                if (i <= j) {
+                    swap(i, j);
+                    i += 1;
+                    j -= 1;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /** Exchange the locations at positions I and J. */
+    private void swap(int i, int j) {
+        Object v = _vertices[i];
+        _vertices[i] = _vertices[j];
+        _vertices[j] = v;
+        double t = _x[i];
+        _x[i] = _x[j];
+        _x[j] = t;
+        t = _y[i];
+        _y[i] = _y[j];
+        _y[j] = t;
+    }
+
+    /** Add to BEST, which holds at most K positions, farthest first, the
+     *  positions in the subtree LO .. HI-1 (split first by x if BYX) that
+     *  are among the K nearest (X, Y) seen so far. */
+    private void nearest(int lo, int hi, boolean byX, double x, double y,
+                         int k, PriorityQueue<Integer> best) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (best.size() < k) {
+            best.add(mid);
+        } else if (dist2(mid, x, y) < dist2(best.peek(), x, y)) {
+            best.poll();
+            best.add(mid);
+        }
+        double diff = byX ? x - _x[mid] : y - _y[mid];
+        if (diff < 0) {
+            nearest(lo, mid, !byX, x, y, k, best);
+        } else {
+            nearest(mid + 1, hi, !byX, x, y, k, best);
+        }
+        if (best.size() < k || diff * diff < dist2(best.peek(), x, y)) {
+            if (diff < 0) {
+                nearest(mid + 1, hi, !byX, x, y, k, best);
+            } else {
+                nearest(lo, mid, !byX, x, y, k, best);
+            }
+        }
+    }
+
+    /** Add to RESULT the vertices in the subtree LO .. HI-1 (split first
+     *  by x if BYX) whose locations lie in the rectangle XLOW <= x <=
+     *  XHIGH, YLOW <= y <= YHIGH. */
+    private void within(int lo, int hi, boolean byX, double xlow,
+                        double ylow, double xhigh, double yhigh,
+                        List<Graph<Location, Distance>.Vertex> result) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (xlow <= _x[mid] && _x[mid] <= xhigh
+            && ylow <= _y[mid] && _y[mid] <= yhigh) {
+            result.add(vertex(mid));
+        }
+        double split = byX ? _x[mid] : _y[mid];
+        if ((byX ? xlow : ylow) <= split) {
+            within(lo, mid, !byX, xlow, ylow, xhigh, yhigh, result);
+        }
+        if ((byX ? xhigh : yhigh) >= split) {
+            within(mid + 1, hi, !byX, xlow, ylow, xhigh, yhigh, result);
+        }
+    }
+
+    /** Returns the square of the distance from (X, Y) to the location at
+     *  position I. */
+    private double dist2(int i, double x, double y) {
+        double dx = _x[i] - x, dy = _y[i] - y;
+        return dx * dx + dy * dy;
+    }
+
+    /** Returns the vertex at position I. */
+    @SuppressWarnings("unchecked")
+    private Graph<Location, Distance>.Vertex vertex(int i) {
+        return (Graph<Location, Distance>.Vertex) _vertices[i];
+    }
+
+    /** The vertices, in k-d tree order. */
+    private final Object[] _vertices;
+    /** _x[i] and _y[i] are the coordinates of _vertices[i]. */
+    private final double[] _x, _y;
+}
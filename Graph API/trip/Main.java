@@ -4,19 +4,21 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.PrintStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import graph.Graph;
-import graph.Graphs;
-import graph.Weightable;
 import graph.Weighted;
 import graph.Distancer;
-import graph.UndirectedGraph;
+import graph.ContractionHierarchy;
+import graph.GraphBuilder;
+import graph.LandmarkDistancer;
+import graph.PathCache;
+import graph.Weighting;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Scanner;
 import java.util.regex.Pattern;
-import java.util.regex.MatchResult;
-import java.util.ListIterator;
 
 /** Initial class for the 'trip' program.
  *  @author Julian Wong
@@ -25,10 +27,24 @@ public final class Main {
 
     /** Entry point for the CS61B trip program.  ARGS may contain options
      *  and targets:
-     *      [ -m MAP ] [ -o OUT ] [ REQUEST ]
+     *      [ -m MAP ] [ -o OUT ] [ -c | [ -b ] [ -l LANDMARKS ] ]
+     *      [ -j THREADS ] [ -s ] [ REQUEST ]
      *  where MAP (default Map) contains the map data, OUT (default standard
      *  output) takes the result, and REQUEST (default standard input) contains
-     *  the locations along the requested trip.
+     *  the locations along the requested trip, each given by name or by
+     *  the coordinates of a point near it, as @X:Y.  With -b, routes are
+     *  found by searching from both ends at once, which is faster on long
+     *  trips.
+     *  With -c, the map is first preprocessed into a contraction
+     *  hierarchy, which pays off when there are many requests.  It answers
+     *  all routes itself, and so may not be combined with -b or -l.
+     *  With -l, routes are guided by distances to landmark locations,
+     *  which are read from LANDMARKS, or computed and saved there if it
+     *  does not exist or was made for a different map.
+     *  Itineraries are answered concurrently by THREADS (default: the
+     *  number of processors) workers, and printed in the order requested.
+     *  With -s, totals describing the work of the route searches are
+     *  printed on the standard error afterwards.
      */
     public static void main(String... args) {
         String mapFileName;
@@ -54,6 +70,33 @@ public final class Main {
                 } else {
                     outFileName = args[a];
                 }
+            } else if (args[a].equals("-l")) {
+                a += 1;
+                if (a == args.length) {
+                    usage();
+                } else {
+                    _landmarkFileName = args[a];
+                }
+            } else if (args[a].equals("-j")) {
+                a += 1;
+                if (a == args.length) {
+                    usage();
+                } else {
+                    try {
+                        _threads = Integer.parseInt(args[a]);
+                    } catch (NumberFormatException e) {
+                        usage();
+                    }
+                    if (_threads <= 0) {
+                        usage();
+                    }
+                }
+            } else if (args[a].equals("-s")) {
+                _stats = true;
+            } else if (args[a].equals("-c")) {
+                _contract = true;
+            } else if (args[a].equals("-b")) {
+                _bidirectional = true;
             } else if (args[a].startsWith("-")) {
                 usage();
             } else {
@@ -61,6 +104,9 @@ public final class Main {
             }
         }
 
+        if (_contract && (_bidirectional || _landmarkFileName != null)) {
+            usage();
+        }
         if (a == args.length - 1) {
             requestFileName = args[a];
         } else if (a > args.length) {
@@ -94,10 +140,9 @@ public final class Main {
      *  output, using the map data in MAPFILENAME.
      */
     private static void trip(String mapFileName) {
-        map = new UndirectedGraph<Location, Distance>();
-        _locations = new ArrayList<Location>();
-        _dis = new HashMap<String, Graph<Location, Distance>.Edge>();
-        vertexes = new HashMap<String, Graph<Location, Distance>.Vertex>();
+        GraphBuilder<Location, Distance> builder =
+            new GraphBuilder<Location, Distance>();
+        HashMap<String, Integer> locationIds = new HashMap<String, Integer>();
         String temp, from, to, dir, road; double dis, x, y;
         Pattern word = Pattern.compile("\\S+");
         try {
@@ -107,96 +152,96 @@ public final class Main {
                 if (temp.equals("L")) {
                     from = in.next(word); x = Double.parseDouble(in.next(word));
                     y = Double.parseDouble(in.next(word));
-                    vertexes.put(from,
-                                 map.add(new Location(from, x, y)));
+                    locationIds.put(from, builder.addVertex(
+                                        new Location(from, x, y)));
                 } else if (temp.equals("R")) {
                     from = in.next(word); road = in.next(word);
                     dis = Double.parseDouble(in.next(word));
                     dir = in.next(word); to = in.next(word);
-                    _dis.put(from, map.add(vertexes.get(from), vertexes.get(to),
-                                           new Distance(from, road, dis,
-                                                        dir, to)));
+                    builder.addEdge(locationIds.get(from),
+                                    locationIds.get(to),
+                                    new Distance(from, road, dis, dir, to));
                 }
             }
         } catch (FileNotFoundException e) {
             System.exit(1);
         }
-        takeRequest();
-
+        Graph<Location, Distance> map = builder.buildUndirected().freeze();
+        Distancer<Location> heuristic = HEURISTIC;
+        if (_landmarkFileName != null) {
+            heuristic = combine(HEURISTIC, landmarks(map, _landmarkFileName));
+        }
+        ContractionHierarchy<Location, Distance> hierarchy = null;
+        if (_contract) {
+            hierarchy =
+                new ContractionHierarchy<Location, Distance>(map, MILES);
+        }
+        HashMap<String, Graph<Location, Distance>.Vertex> places =
+            new HashMap<String, Graph<Location, Distance>.Vertex>();
+        for (String place : locationIds.keySet()) {
+            places.put(place, builder.vertex(locationIds.get(place)));
+        }
+        QueryEngine engine =
+            new QueryEngine(map, places, MILES, heuristic, hierarchy,
+                            _bidirectional, _threads);
+        if (_stats) {
+            engine.recordStats();
+        }
+        engine.answer(System.in, System.out);
+        if (_stats) {
+            System.err.print(engine.stats());
+            System.err.printf("cache hits:         %d%n"
+                              + "cache misses:       %d%n",
+                              engine.cache().hits(), engine.cache().misses());
+        }
     }
-    /** Takes request from requestfile. */
-    private static void takeRequest() {
-        Scanner req = new Scanner(System.in);
-        Pattern comma = Pattern.compile("([^\\n,]+)(,)?");
-        req.useDelimiter("\\s");
-        String temp = null;
-        MatchResult word;
-        index = 1;
-        while (req.hasNext(comma)) {
-            req.next(comma);
-            word = req.match();
-            if (word.end(2) > -1) {
-                if (temp != null) {
-                    printDirections(temp, word.group(1));
-                } else {
-                    System.out.printf("From %s:\n\n", word.group(1));
-                }
-                temp = word.group(1);
-            } else {
-                printDirections(temp, word.group(1));
-                temp = null;
-                index = 1;
-            }
-            for (Graph<Location, Distance>.Vertex v : map.vertices()) {
-                v.getLabel().setWeight(Double.POSITIVE_INFINITY);
+
+    /** Returns landmark distances for MAP, read from FILENAME if it holds
+     *  tables for MAP, and otherwise computed and written to FILENAME. */
+    @SuppressWarnings("unchecked")
+    private static LandmarkDistancer<Location> landmarks(
+        Graph<Location, Distance> map, String fileName) {
+        try {
+            ObjectInputStream in =
+                new ObjectInputStream(new FileInputStream(fileName));
+            try {
+                LandmarkDistancer<Location> result =
+                    (LandmarkDistancer<Location>) in.readObject();
+                result.attach(map, MILES);
+                return result;
+            } finally {
+                in.close();
             }
+        } catch (IOException | ClassNotFoundException
+                 | IllegalArgumentException e) {
+            /* Fall through and recompute the tables. */
         }
-    }
-    /** Prints directions from FROM to TO. */
-    private static void printDirections(String from, String to) {
-        ListIterator<Graph<Location, Distance>.Edge> directions =
-            Graphs.shortestPath(map, vertexes.get(from),
-                                vertexes.get(to), HEURISTIC).listIterator();
-        Distance temp = directions.next().getLabel();
-        String road = temp.getRoad();
-        Double distance = temp.weight(); String city = from;
-        int x = temp.getFrom().equals(city) ? 1 : 0;
-        String direction = parseDirection(temp.getDir().substring(x, x + 1));
-        while (directions.hasNext()) {
-            city = x == 1 ? temp.getTo() : temp.getFrom();
-            temp = directions.next().getLabel();
-            x = temp.getFrom().equals(city) ? 1 : 0;
-            if (temp.getRoad().equals(road)
-                && parseDirection(temp.getDir().substring(x, x + 1))
-                    .equals(direction)) {
-                distance += temp.weight();
-            } else {
-                System.out.printf("%d. Take %s %s for %.1f miles.\n",
-                                  index, road, direction, distance);
-                road = temp.getRoad();
-                distance = temp.weight(); index += 1;
-                direction = parseDirection(temp.getDir().substring(x, x + 1));
+        LandmarkDistancer<Location> result =
+            new LandmarkDistancer<Location>(map, LANDMARKS, MILES);
+        try {
+            ObjectOutputStream out =
+                new ObjectOutputStream(new FileOutputStream(fileName));
+            try {
+                out.writeObject(result);
+            } finally {
+                out.close();
             }
+        } catch (IOException e) {
+            System.err.printf("Could not save landmarks to %s.%n", fileName);
         }
-        System.out.printf("%d. Take %s %s for %.1f miles to %s.\n",
-                          index, road, direction, distance, to);
-        index += 1;
+        return result;
     }
 
-    /** Returns a direction based on input LETTER. */
-    private static String parseDirection(String letter) {
-        switch (letter) {
-        case "S":
-            return "south";
-        case "N":
-            return "north";
-        case "E":
-            return "east";
-        case "W":
-            return "west";
-        default:
-            return null;
-        }
+    /** Returns a Distancer whose distance is the larger of those given by
+     *  H0 and H1.  It is a valid shortest-path bound if both are. */
+    private static Distancer<Location> combine(final Distancer<Location> h0,
+                                               final Distancer<Location> h1) {
+        return new Distancer<Location>() {
+            @Override
+            public double dist(Location v0, Location v1) {
+                return Math.max(h0.dist(v0, v1), h1.dist(v0, v1));
+            }
+        };
     }
 
     /** Print a brief usage message and exit program abnormally. */
@@ -205,13 +250,12 @@ public final class Main {
         System.exit(1);
     }
     /** Class location. */
-    static class Location implements Weightable {
+    static class Location {
         /** Constructor that stores PLACE, X, and Y. */
         public Location(String place, double x, double y) {
             _place = place;
             _x = x;
             _y = y;
-            _weight = Double.POSITIVE_INFINITY;
         }
         /** Returns the place. */
         String getPlace() {
@@ -226,26 +270,15 @@ public final class Main {
             return _y;
         }
         @Override
-        public void setWeight(double w) {
-            _weight = w;
-        }
-
-        @Override
-        public double weight() {
-            return _weight;
-        }
-        @Override
         public String toString() {
             return _place;
         }
-        /** Weight. */
-        private double _weight;
         /** Place. */
-        private String _place;
+        private final String _place;
         /** X coordinate. */
-        private double _x;
+        private final double _x;
         /** Y coordinate. */
-        private double _y;
+        private final double _y;
     }
     /** Class Distance. */
     static class Distance implements Weighted {
@@ -301,15 +334,24 @@ public final class Main {
                                  + Math.pow(v0.getX() - v1.getX(), 2));
             }
         };
-    /** The graph. */
-    private static Graph<Location, Distance> map;
-    /** The locations. */
-    private static ArrayList<Location> _locations;
-    /** Stores distances. */
-    private static HashMap<String, Graph<Location, Distance>.Edge> _dis;
-    /** Stores vertexes. */
-    private static HashMap<String, Graph<Location, Distance>.Vertex> vertexes;
-    /** Index. */
-    private static int index;
-
+    /** Weights roads by their length. */
+    static final Weighting<Distance> MILES =
+        new Weighting<Distance>() {
+            @Override
+            public double weight(Distance d) {
+                return d.weight();
+            }
+        };
+    /** True iff routes are found with a contraction hierarchy. */
+    private static boolean _contract;
+    /** Number of landmarks used with -l. */
+    private static final int LANDMARKS = 16;
+    /** File holding landmark tables, or null if not using landmarks. */
+    private static String _landmarkFileName;
+    /** True iff routes are found by bidirectional search. */
+    private static boolean _bidirectional;
+    /** True iff search statistics are printed. */
+    private static boolean _stats;
+    /** Number of threads answering requests. */
+    private static int _threads = Runtime.getRuntime().availableProcessors();
 }
@@ -0,0 +1,329 @@
+package trip;
+
+import graph.ContractionHierarchy;
+import graph.Distancer;
+import graph.Graph;
+import graph.Graphs;
+import graph.PathCache;
+import graph.SearchContext;
+import graph.SearchStats;
+import graph.Weighting;
+import trip.Main.Distance;
+import trip.Main.Location;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.MatchResult;
+import java.util.regex.Pattern;
+
+/** Answers trip requests against one map using a pool of worker threads.
+ *  The map, which must not change while I use it, is shared by all
+ *  workers, and each worker does its searches in its own SearchContext.
+ *  Each itinerary in the request stream becomes one task, whose
+ *  directions are collected in a block of text; blocks are printed in the
+ *  order of their itineraries, however the tasks happen to finish.
+ *  A location in an itinerary may be given by coordinates, as @X:Y,
+ *  to denote the location nearest the point (X, Y).
+ *  @author Julian Wong
+ */
+final class QueryEngine {
+
+    /** An engine that answers requests for routes between the locations
+     *  of MAP named in PLACES, using THREADS workers.  Routes are found
+     *  with HIERARCHY if it is not null, and otherwise are guided by
+     *  HEURISTIC, searching from both ends if BIDIRECTIONAL, which
+     *  HIERARCHY excludes.  Roads are weighted by MILES. */
+    QueryEngine(final Graph<Location, Distance> map,
+                Map<String, Graph<Location, Distance>.Vertex> places,
+                Weighting<Distance> miles, Distancer<Location> heuristic,
+                ContractionHierarchy<Location, Distance> hierarchy,
+                boolean bidirectional, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        if (hierarchy != null && bidirectional) {
+            throw new IllegalArgumentException("hierarchy searches are not"
+                                               + " bidirectional");
+        }
+        _places = Collections.unmodifiableMap(
+            new HashMap<String, Graph<Location, Distance>.Vertex>(places));
+        _miles = miles;
+        _heuristic = heuristic;
+        _hierarchy = hierarchy;
+        _bidirectional = bidirectional;
+        _threads = threads;
+        _cache = new PathCache<Location, Distance>(CACHE_SIZE);
+        _index = new LocationIndex(_places.values());
+        _workerStats = new ArrayList<SearchStats>();
+        _search = new ThreadLocal<SearchContext<Location, Distance>>() {
+            @Override
+            protected SearchContext<Location, Distance> initialValue() {
+                SearchContext<Location, Distance> context =
+                    new SearchContext<Location, Distance>(map);
+                if (_recordStats) {
+                    SearchStats stats = new SearchStats();
+                    context.setStats(stats);
+                    synchronized (_workerStats) {
+                        _workerStats.add(stats);
+                    }
+                }
+                return context;
+            }
+        };
+    }
+
+    /** Record the work done by route searches from now on, for
+     *  stats(). */
+    void recordStats() {
+        _recordStats = true;
+    }
+
+    /** Returns the total work done by the route searches of all workers
+     *  since recordStats() was called.  Routes found in the cache or
+     *  with a contraction hierarchy are not searched for. */
+    SearchStats stats() {
+        SearchStats result = new SearchStats();
+        synchronized (_workerStats) {
+            for (SearchStats stats : _workerStats) {
+                result.add(stats);
+            }
+        }
+        return result;
+    }
+
+    /** Returns the cache of routes shared by my workers. */
+    PathCache<Location, Distance> cache() {
+        return _cache;
+    }
+
+    /** Read itineraries from REQUESTS and print directions for each of
+     *  them on OUT, in order.  An itinerary is a comma-separated list of
+     *  locations ending with one that is not followed by a comma.  If
+     *  answering an itinerary fails, the directions preceding the failure
+     *  are printed and the failure is rethrown. */
+    void answer(InputStream requests, PrintStream out) {
+        Scanner req = new Scanner(requests);
+        Pattern comma = Pattern.compile("([^\\n,]+)(,)?");
+        req.useDelimiter("\\s");
+        ExecutorService pool = Executors.newFixedThreadPool(_threads);
+        ArrayDeque<Future<Block>> pending = new ArrayDeque<Future<Block>>();
+        try {
+            List<String> itinerary = null;
+            while (req.hasNext(comma)) {
+                req.next(comma);
+                MatchResult word = req.match();
+                if (itinerary == null) {
+                    itinerary = new ArrayList<String>();
+                    if (word.end(2) == -1) {
+                        itinerary.add(null);
+                    }
+                }
+                itinerary.add(word.group(1));
+                if (word.end(2) == -1) {
+                    pending.add(pool.submit(task(itinerary)));
+                    itinerary = null;
+                    if (pending.size() > IN_FLIGHT_PER_THREAD * _threads) {
+                        print(pending.remove(), out);
+                    }
+                }
+            }
+            if (itinerary != null) {
+                pending.add(pool.submit(task(itinerary)));
+            }
+            while (!pending.isEmpty()) {
+                print(pending.remove(), out);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** Returns a task that collects the directions for ITINERARY, whose
+     *  first element is null if it has no starting location. */
+    private Callable<Block> task(final List<String> itinerary) {
+        return new Callable<Block>() {
+            @Override
+            public Block call() {
+                StringBuilder text = new StringBuilder();
+                try {
+                    ArrayList<String> places = new ArrayList<String>();
+                    for (String name : itinerary) {
+                        places.add(place(name));
+                    }
+                    if (places.get(0) != null) {
+                        text.append(String.format("From %s:\n\n",
+                                                  places.get(0)));
+                    }
+                    int index = 1;
+                    for (int i = 1; i < places.size(); i += 1) {
+                        index = directions(places.get(i - 1),
+                                           places.get(i), index, text);
+                    }
+                    return new Block(text.toString(), null);
+                } catch (RuntimeException e) {
+                    return new Block(text.toString(), e);
+                }
+            }
+        };
+    }
+
+    /** Wait for BLOCK and print it on OUT, rethrowing its failure, if
+     *  any. */
+    private static void print(Future<Block> block, PrintStream out) {
+        Block b;
+        try {
+            b = block.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("trip request interrupted");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("trip request failed",
+                                            e.getCause());
+        }
+        out.print(b._text);
+        if (b._failure != null) {
+            throw b._failure;
+        }
+    }
+
+    /** Returns the name of the location that NAME denotes: the location
+     *  nearest (X, Y) if NAME has the form @X:Y, and otherwise NAME
+     *  itself. */
+    private String place(String name) {
+        int colon = name == null ? -1 : name.indexOf(':');
+        if (colon > 0 && name.startsWith("@")) {
+            try {
+                double x = Double.parseDouble(name.substring(1, colon)),
+                    y = Double.parseDouble(name.substring(colon + 1));
+                Graph<Location, Distance>.Vertex v = _index.nearest(x, y);
+                if (v != null) {
+                    return v.getLabel().getPlace();
+                }
+            } catch (NumberFormatException e) {
+                /* Not coordinates after all. */
+            }
+        }
+        return name;
+    }
+
+    /** Returns a shortest route from the location named FROM to the one
+     *  named TO, found in the current worker's SearchContext. */
+    private List<Graph<Location, Distance>.Edge> route(String from,
+                                                       String to) {
+        Graph<Location, Distance>.Vertex v0 = _places.get(from),
+            v1 = _places.get(to);
+        if (_hierarchy != null) {
+            return _hierarchy.shortestPath(v0, v1);
+        } else if (_bidirectional) {
+            return Graphs.bidirectionalShortestPath(_search.get(), v0, v1,
+                                                    _heuristic);
+        } else {
+            return _cache.shortestPath(_search.get(), v0, v1, _heuristic,
+                                       _miles);
+        }
+    }
+
+    /** Append directions from FROM to TO to TEXT, numbering the steps
+     *  from INDEX, and return the number of the next step. */
+    private int directions(String from, String to, int index,
+                           StringBuilder text) {
+        ListIterator<Graph<Location, Distance>.Edge> directions =
+            route(from, to).listIterator();
+        Distance temp = directions.next().getLabel();
+        String road = temp.getRoad();
+        double distance = temp.weight(); String city = from;
+        int x = temp.getFrom().equals(city) ? 1 : 0;
+        String direction = parseDirection(temp.getDir().substring(x, x + 1));
+        while (directions.hasNext()) {
+            city = x == 1 ? temp.getTo() : temp.getFrom();
+            temp = directions.next().getLabel();
+            x = temp.getFrom().equals(city) ? 1 : 0;
+            if (temp.getRoad().equals(road)
+                && parseDirection(temp.getDir().substring(x, x + 1))
+                    .equals(direction)) {
+                distance += temp.weight();
+            } else {
+                text.append(String.format("%d. Take %s %s for %.1f miles.\n",
+                                          index, road, direction, distance));
+                road = temp.getRoad();
+                distance = temp.weight(); index += 1;
+                direction = parseDirection(temp.getDir().substring(x, x + 1));
+            }
+        }
+        text.append(String.format("%d. Take %s %s for %.1f miles to %s.\n",
+                                  index, road, direction, distance, to));
+        return index + 1;
+    }
+
+    /** Returns a direction based on input LETTER. */
+    private static String parseDirection(String letter) {
+        switch (letter) {
+        case "S":
+            return "south";
+        case "N":
+            return "north";
+        case "E":
+            return "east";
+        case "W":
+            return "west";
+        default:
+            return null;
+        }
+    }
+
+    /** The directions for one itinerary. */
+    private static class Block {
+        /** Directions TEXT, which stop short if FAILURE is not null. */
+        Block(String text, RuntimeException failure) {
+            _text = text;
+            _failure = failure;
+        }
+
+        /** The directions. */
+        private final String _text;
+        /** The exception that stopped the directions, or null. */
+        private final RuntimeException _failure;
+    }
+
+    /** Maximum number of itineraries per worker that are read ahead of
+     *  the one being printed. */
+    private static final int IN_FLIGHT_PER_THREAD = 4;
+    /** Maximum number of routes remembered. */
+    private static final int CACHE_SIZE = 1024;
+
+    /** The locations of the map, by name. */
+    private final Map<String, Graph<Location, Distance>.Vertex> _places;
+    /** Weights roads by their length. */
+    private final Weighting<Distance> _miles;
+    /** The distance measure that guides route searches. */
+    private final Distancer<Location> _heuristic;
+    /** The contraction hierarchy of the map, or null. */
+    private final ContractionHierarchy<Location, Distance> _hierarchy;
+    /** True iff routes are found by bidirectional search. */
+    private final boolean _bidirectional;
+    /** Number of workers. */
+    private final int _threads;
+    /** The locations of the map, indexed by coordinates. */
+    private final LocationIndex _index;
+    /** Recently found routes, shared by all workers. */
+    private final PathCache<Location, Distance> _cache;
+    /** The SearchStats of the workers' searches. */
+    private final ArrayList<SearchStats> _workerStats;
+    /** True iff workers record the work of their searches. */
+    private volatile boolean _recordStats;
+    /** Each worker's working storage for searches of the map. */
+    private final ThreadLocal<SearchContext<Location, Distance>> _search;
+}
@@ -5,7 +5,17 @@ package trip;
  * may not be part of your trip package per se (that is, it must be
  * possible to remove them and still have your package work). */
 
-/** import org.junit.Test; */
+import graph.Graph;
+import graph.GraphBuilder;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
 import ucb.junit.textui;
 import static org.junit.Assert.*;
 
@@ -17,5 +27,113 @@ public class Testing {
         System.exit(textui.runClasses(trip.Testing.class));
     }
 
+    /** Returns the directions QueryEngine prints for REQUESTS on a small
+     *  map using THREADS workers. */
+    private static String answer(String requests, int threads) {
+        GraphBuilder<Main.Location, Main.Distance> builder =
+            new GraphBuilder<Main.Location, Main.Distance>();
+        HashMap<String, Graph<Main.Location, Main.Distance>.Vertex> places =
+            new HashMap<String, Graph<Main.Location, Main.Distance>.Vertex>();
+        String[] names = { "A", "B", "C", "D" };
+        for (int i = 0; i < names.length; i += 1) {
+            builder.addVertex(new Main.Location(names[i], i, 0));
+        }
+        builder.addEdge(0, 1, new Main.Distance("A", "R1", 1.0, "WE", "B"));
+        builder.addEdge(1, 2, new Main.Distance("B", "R1", 1.0, "WE", "C"));
+        builder.addEdge(2, 3, new Main.Distance("C", "R2", 1.0, "WE", "D"));
+        Graph<Main.Location, Main.Distance> map = builder.buildUndirected();
+        for (int i = 0; i < names.length; i += 1) {
+            places.put(names[i], builder.vertex(i));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new QueryEngine(map, places, Main.MILES, Main.HEURISTIC, null, false,
+                        threads)
+            .answer(new ByteArrayInputStream(requests.getBytes()),
+                    new PrintStream(out, true));
+        return out.toString();
+    }
+
+    @Test
+    public void queryEngine() {
+        assertEquals("From A:\n\n1. Take R1 east for 2.0 miles.\n"
+                     + "2. Take R2 east for 1.0 miles to D.\n"
+                     + "From D:\n\n1. Take R2 west for 1.0 miles to C.\n"
+                     + "2. Take R2 east for 1.0 miles to D.\n",
+                     answer("A, D\nD, C, D\n", 1));
+        StringBuilder requests = new StringBuilder();
+        for (int i = 0; i < 50; i += 1) {
+            requests.append(i % 2 == 0 ? "A, D\n" : "D, B, C\n");
+        }
+        assertEquals(answer(requests.toString(), 1),
+                     answer(requests.toString(), 4));
+        assertEquals("From D:\n\n1. Take R2 west for 1.0 miles to C.\n",
+                     answer("@2.9:0.3, @1.6:-1\n", 1));
+    }
+
+    @Test
+    public void locationIndex() {
+        Random rand = new Random(3);
+        GraphBuilder<Main.Location, Main.Distance> builder =
+            new GraphBuilder<Main.Location, Main.Distance>();
+        for (int i = 0; i < 2000; i += 1) {
+            builder.addVertex(new Main.Location("P" + i,
+                                                rand.nextInt(300) / 3.0,
+                                                rand.nextInt(300) / 3.0));
+        }
+        builder.buildUndirected();
+        List<Graph<Main.Location, Main.Distance>.Vertex> all =
+            new ArrayList<Graph<Main.Location, Main.Distance>.Vertex>();
+        for (int i = 0; i < 2000; i += 1) {
+            all.add(builder.vertex(i));
+        }
+        LocationIndex index = new LocationIndex(all);
+        assertEquals("Size", 2000, index.size());
+        for (int trial = 0; trial < 200; trial += 1) {
+            double x = rand.nextDouble() * 120 - 10,
+                y = rand.nextDouble() * 120 - 10;
+            double best = Double.POSITIVE_INFINITY;
+            for (Graph<Main.Location, Main.Distance>.Vertex v : all) {
+                best = Math.min(best, dist(v, x, y));
+            }
+            assertEquals("Nearest", best, dist(index.nearest(x, y), x, y),
+                         1e-9);
+            List<Graph<Main.Location, Main.Distance>.Vertex> near =
+                index.nearest(x, y, 7);
+            assertEquals("K nearest", 7, near.size());
+            for (int k = 1; k < near.size(); k += 1) {
+                assertTrue("Nearest first", dist(near.get(k - 1), x, y)
+                           <= dist(near.get(k), x, y));
+            }
+            int closer = 0;
+            for (Graph<Main.Location, Main.Distance>.Vertex v : all) {
+                if (dist(v, x, y) < dist(near.get(6), x, y)) {
+                    closer += 1;
+                }
+            }
+            assertTrue("No others closer", closer < 7);
+            double x1 = x + rand.nextDouble() * 20,
+                y1 = y + rand.nextDouble() * 20;
+            HashSet<Graph<Main.Location, Main.Distance>.Vertex> inBox =
+                new HashSet<Graph<Main.Location, Main.Distance>.Vertex>();
+            for (Graph<Main.Location, Main.Distance>.Vertex v : all) {
+                Main.Location p = v.getLabel();
+                if (x <= p.getX() && p.getX() <= x1
+                    && y <= p.getY() && p.getY() <= y1) {
+                    inBox.add(v);
+                }
+            }
+            List<Graph<Main.Location, Main.Distance>.Vertex> found =
+                index.within(x, y, x1, y1);
+            assertEquals("Box size", inBox.size(), found.size());
+            assertTrue("Box contents", inBox.containsAll(found));
+        }
+        assertEquals("All", 2000, index.nearest(0, 0, 5000).size());
+    }
+
+    /** Returns the distance of the location of V from (X, Y). */
+    private static double dist(Graph<Main.Location, Main.Distance>.Vertex v,
+                               double x, double y) {
+        return Math.hypot(v.getLabel().getX() - x, v.getLabel().getY() - y);
+    }
 
 }